@@ -0,0 +1,77 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.inference.service.benchmark;
+
+import static io.gravitee.inference.api.Constants.SERVICE_INFERENCE_MODELS_ADDRESS;
+
+import io.gravitee.inference.api.service.InferenceAction;
+import io.gravitee.inference.api.service.InferenceRequest;
+import io.gravitee.inference.service.InferenceService;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.json.Json;
+import io.vertx.rxjava3.core.Vertx;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Starts the inference service and its models for the end-to-end benchmarks.
+ *
+ * @author GraviteeSource Team
+ */
+final class BenchmarkSupport {
+
+  /**
+   * Directory where models are downloaded, reused across runs.
+   */
+  static final String MODELS_PATH_PROPERTY = "benchmark.models";
+
+  // Leaves time for the first run to download the model
+  private static final DeliveryOptions START_OPTIONS =
+    new DeliveryOptions().setSendTimeout(TimeUnit.MINUTES.toMillis(5));
+
+  private BenchmarkSupport() {}
+
+  static InferenceService startService(Vertx vertx) throws Exception {
+    var service = new InferenceService(vertx, modelsPath());
+    service.start();
+    return service;
+  }
+
+  /**
+   * @return the address of the started model
+   */
+  static String startModel(Vertx vertx, Map<String, Object> payload) {
+    var request = new InferenceRequest(InferenceAction.START, payload);
+    return vertx
+      .eventBus()
+      .request(
+        SERVICE_INFERENCE_MODELS_ADDRESS,
+        Json.encodeToBuffer(request),
+        START_OPTIONS
+      )
+      .blockingGet()
+      .body()
+      .toString();
+  }
+
+  private static String modelsPath() throws IOException {
+    var path = Path.of(System.getProperty(MODELS_PATH_PROPERTY, "models"));
+    return Files.createDirectories(path).toAbsolutePath().toString();
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.inference.service.benchmark;
+
+import io.gravitee.inference.api.embedding.EmbeddingTokenCount;
+import io.gravitee.inference.api.service.InferenceAction;
+import io.gravitee.inference.api.service.InferenceRequest;
+import io.gravitee.inference.service.codec.EmbeddingTokenCountCodec;
+import io.gravitee.inference.service.codec.InferenceCodecs;
+import io.gravitee.inference.service.codec.InferenceRequestCodec;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.Json;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Decoding of INFER requests and encoding of embeddings, in the JSON and the
+ * binary representations.
+ *
+ * @author GraviteeSource Team
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CodecBenchmark {
+
+  @Param({ "384", "1536" })
+  int dimensions;
+
+  private final InferenceRequestCodec requestCodec =
+    new InferenceRequestCodec();
+  private final EmbeddingTokenCountCodec embeddingCodec =
+    new EmbeddingTokenCountCodec();
+
+  private InferenceRequest request;
+  private Buffer jsonRequest;
+  private Buffer binaryRequest;
+  private EmbeddingTokenCount embedding;
+  private Buffer jsonEmbedding;
+  private Buffer binaryEmbedding;
+
+  @Setup
+  public void setUp() {
+    request = new InferenceRequest(
+      InferenceAction.INFER,
+      Map.of("input", "The quick brown fox jumps over the lazy dog")
+    );
+    jsonRequest = Json.encodeToBuffer(request);
+    binaryRequest = Buffer.buffer();
+    requestCodec.encodeToWire(binaryRequest, request);
+
+    var random = new Random(42);
+    var vector = new float[dimensions];
+    for (int i = 0; i < dimensions; i++) {
+      vector[i] = random.nextFloat();
+    }
+    embedding = new EmbeddingTokenCount(vector, 12);
+    jsonEmbedding = Json.encodeToBuffer(embedding);
+    binaryEmbedding = Buffer.buffer();
+    embeddingCodec.encodeToWire(binaryEmbedding, embedding);
+  }
+
+  @Benchmark
+  public InferenceRequest decodeJsonRequest() {
+    return InferenceCodecs.decodeRequest(jsonRequest);
+  }
+
+  @Benchmark
+  public InferenceRequest decodeBinaryRequest() {
+    return requestCodec.decodeFromWire(0, binaryRequest);
+  }
+
+  @Benchmark
+  public Buffer encodeJsonEmbedding() {
+    return Json.encodeToBuffer(embedding);
+  }
+
+  @Benchmark
+  public Buffer encodeBinaryEmbedding() {
+    var buffer = Buffer.buffer(8 + 4 * dimensions);
+    embeddingCodec.encodeToWire(buffer, embedding);
+    return buffer;
+  }
+
+  @Benchmark
+  public EmbeddingTokenCount decodeJsonEmbedding() {
+    return Json.decodeValue(jsonEmbedding, EmbeddingTokenCount.class);
+  }
+
+  @Benchmark
+  public EmbeddingTokenCount decodeBinaryEmbedding() {
+    return embeddingCodec.decodeFromWire(0, binaryEmbedding);
+  }
+}
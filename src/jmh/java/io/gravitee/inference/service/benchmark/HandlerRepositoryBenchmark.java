@@ -0,0 +1,88 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.inference.service.benchmark;
+
+import io.gravitee.inference.service.handler.InferenceHandler;
+import io.gravitee.inference.service.repository.HandlerRepository;
+import io.reactivex.rxjava3.core.Single;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Contention on {@link HandlerRepository} when many APIs start and stop the
+ * same model, or distinct models, at the same time.
+ *
+ * @author GraviteeSource Team
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(8)
+public class HandlerRepositoryBenchmark {
+
+  private final HandlerRepository repository = new HandlerRepository();
+  private final InferenceHandler sharedModel = new NoopHandler("0");
+
+  @State(Scope.Thread)
+  public static class DistinctModel {
+
+    private static final AtomicInteger KEYS = new AtomicInteger(1);
+
+    InferenceHandler handler;
+
+    @Setup
+    public void setUp() {
+      handler = new NoopHandler(String.valueOf(KEYS.getAndIncrement()));
+    }
+  }
+
+  @Setup
+  public void setUp() {
+    // Keeps the shared model loaded, as when one API stays deployed
+    repository.add(sharedModel).blockingGet();
+  }
+
+  @Benchmark
+  public void addRemoveSharedModel() {
+    repository.remove(repository.add(sharedModel).blockingGet());
+  }
+
+  @Benchmark
+  public void addRemoveDistinctModels(DistinctModel model) {
+    repository.remove(repository.add(model.handler).blockingGet());
+  }
+
+  private record NoopHandler(String key) implements InferenceHandler {
+    @Override
+    public void loadModel() {}
+
+    @Override
+    public Single<Object> infer(Object input) {
+      return Single.just(input);
+    }
+
+    @Override
+    public void close() {}
+  }
+}
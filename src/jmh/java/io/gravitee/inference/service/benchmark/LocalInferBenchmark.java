@@ -0,0 +1,102 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.inference.service.benchmark;
+
+import static io.gravitee.inference.api.Constants.*;
+
+import io.gravitee.inference.api.service.InferenceAction;
+import io.gravitee.inference.api.service.InferenceRequest;
+import io.gravitee.inference.service.InferenceService;
+import io.vertx.core.json.Json;
+import io.vertx.rxjava3.core.Vertx;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Event bus INFER round trips against a small ONNX BERT embedding model,
+ * downloaded from Hugging Face on the first run.
+ *
+ * @author GraviteeSource Team
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LocalInferBenchmark {
+
+  /**
+   * Whether requests are sent as JSON buffers or as request objects.
+   */
+  @Param({ "json", "object" })
+  String representation;
+
+  private Vertx vertx;
+  private InferenceService service;
+  private String address;
+  private Object request;
+
+  @Setup
+  public void setUp() throws Exception {
+    vertx = Vertx.vertx();
+    service = BenchmarkSupport.startService(vertx);
+    address = BenchmarkSupport.startModel(
+      vertx,
+      Map.of(
+        INFERENCE_FORMAT,
+        "ONNX_BERT",
+        INFERENCE_TYPE,
+        "EMBEDDING",
+        "modelName",
+        "Xenova/bge-small-en-v1.5",
+        MODEL_PATH,
+        "onnx/model_quantized.onnx",
+        TOKENIZER_PATH,
+        "tokenizer.json",
+        CONFIG_JSON_PATH,
+        "config.json",
+        POOLING_MODE,
+        "MEAN"
+      )
+    );
+
+    var infer = new InferenceRequest(
+      InferenceAction.INFER,
+      Map.of(INPUT, "The quick brown fox jumps over the lazy dog")
+    );
+    request = "json".equals(representation)
+      ? Json.encodeToBuffer(infer)
+      : infer;
+  }
+
+  @TearDown
+  public void tearDown() throws Exception {
+    service.stop();
+    vertx.close().blockingAwait();
+  }
+
+  @Benchmark
+  public Object infer() {
+    return vertx.eventBus().request(address, request).blockingGet().body();
+  }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.inference.service.benchmark;
+
+import static io.gravitee.inference.api.Constants.*;
+
+import io.gravitee.inference.api.service.InferenceAction;
+import io.gravitee.inference.api.service.InferenceRequest;
+import io.gravitee.inference.service.InferenceService;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.rxjava3.core.Vertx;
+import io.vertx.rxjava3.core.http.HttpServer;
+import io.vertx.rxjava3.core.http.HttpServerRequest;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Event bus INFER round trips against an OPENAI model served by a local stub,
+ * which measures the overhead of the service and of its HTTP client.
+ *
+ * @author GraviteeSource Team
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RemoteInferBenchmark {
+
+  private static final int DIMENSIONS = 384;
+
+  /**
+   * Number of inputs per INFER request, more than one is a batch INFER.
+   */
+  @Param({ "1", "16" })
+  int inputs;
+
+  private Vertx vertx;
+  private HttpServer server;
+  private InferenceService service;
+  private String address;
+  private InferenceRequest request;
+
+  @Setup
+  public void setUp() throws Exception {
+    vertx = Vertx.vertx();
+    server = vertx
+      .createHttpServer()
+      .requestHandler(RemoteInferBenchmark::embeddings)
+      .listen(0)
+      .blockingGet();
+    service = BenchmarkSupport.startService(vertx);
+    address = BenchmarkSupport.startModel(
+      vertx,
+      Map.of(
+        INFERENCE_FORMAT,
+        "OPENAI",
+        INFERENCE_TYPE,
+        "EMBEDDING",
+        "uri",
+        "http://localhost:" + server.actualPort() + "/v1",
+        "apiKey",
+        "BENCHMARK",
+        "model",
+        "stub"
+      )
+    );
+
+    var text = "The quick brown fox jumps over the lazy dog";
+    request = new InferenceRequest(
+      InferenceAction.INFER,
+      Map.of(INPUT, inputs == 1 ? text : Collections.nCopies(inputs, text))
+    );
+  }
+
+  @TearDown
+  public void tearDown() throws Exception {
+    service.stop();
+    vertx.close().blockingAwait();
+  }
+
+  @Benchmark
+  public Object infer() {
+    return vertx.eventBus().request(address, request).blockingGet().body();
+  }
+
+  /**
+   * Answers like the OpenAI embeddings endpoint, with one constant vector per
+   * input.
+   */
+  private static void embeddings(HttpServerRequest request) {
+    request
+      .body()
+      .subscribe(body -> {
+        var input = body.toJsonObject().getValue("input");
+        int count = input instanceof JsonArray array ? array.size() : 1;
+        var vector = new JsonArray();
+        for (int i = 0; i < DIMENSIONS; i++) {
+          vector.add(1f / (i + 1));
+        }
+        var data = new JsonArray();
+        for (int i = 0; i < count; i++) {
+          data.add(
+            new JsonObject()
+              .put("object", "embedding")
+              .put("index", i)
+              .put("embedding", vector)
+          );
+        }
+        var response = new JsonObject()
+          .put("object", "list")
+          .put("data", data)
+          .put("model", "stub")
+          .put(
+            "usage",
+            new JsonObject()
+              .put("prompt_tokens", 9 * count)
+              .put("total_tokens", 9 * count)
+          );
+        request
+          .response()
+          .putHeader("Content-Type", "application/json")
+          .end(response.encode())
+          .subscribe();
+      });
+  }
+}
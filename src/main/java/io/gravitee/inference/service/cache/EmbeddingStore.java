@@ -0,0 +1,703 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.inference.service.cache;
+
+import io.gravitee.inference.api.embedding.EmbeddingTokenCount;
+import io.gravitee.inference.service.handler.config.EmbeddingStoreConfig;
+import io.gravitee.inference.service.repository.ModelKeys;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.zip.CRC32C;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Disk-backed store of embeddings keyed by the SHA-256 of their input text,
+ * kept across gateway restarts.
+ * <p>
+ * Records are appended to memory-mapped segment files, and located through an
+ * open addressing index that lives in a memory-mapped file as well, so that the
+ * heap footprint does not grow with the number of stored vectors. The index is
+ * rebuilt from the segments when the store is opened, and a torn record at the
+ * end of the last segment is discarded.
+ * <p>
+ * When the segments exceed {@link EmbeddingStoreConfig#maxBytes()}, the oldest
+ * segment is compacted away: records read since they were written are copied
+ * to the active segment, the others are dropped.
+ * <p>
+ * Mapped files are unmapped before they are deleted, rather than when their
+ * buffers are collected, so that their disk space and address space are
+ * released straight away.
+ *
+ * @author GraviteeSource Team
+ */
+public class EmbeddingStore implements Closeable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(
+    EmbeddingStore.class
+  );
+
+  static final String SEGMENT_PREFIX = "segment-";
+  static final String SEGMENT_SUFFIX = ".dat";
+  private static final String INDEX_PREFIX = "index-";
+  private static final String INDEX_SUFFIX = ".tmp";
+  private static final String LOCK_FILE = ".lock";
+
+  private static final int RECORD_MAGIC = 0x454d4231;
+  private static final int DIGEST_BYTES = 32;
+  // magic, digest, token count, dimensions, ..., crc
+  private static final int RECORD_OVERHEAD = 4 + DIGEST_BYTES + 4 + 4 + 4;
+
+  private static final int SLOT_BYTES = 16;
+  private static final int MIN_SLOTS = 1 << 12;
+  private static final long REFERENCED = 1L << 63;
+
+  private static final MethodHandle UNMAPPER = unmapper();
+
+  private final Path directory;
+  private final EmbeddingStoreConfig config;
+  private final FileChannel lockChannel;
+  private final FileLock lock;
+  private final Deque<Segment> segments = new ArrayDeque<>();
+
+  private MappedByteBuffer index;
+  private Path indexPath;
+  private int slots;
+  private long entries;
+  private long bytes;
+  private long hits;
+  private long misses;
+  private long evictions;
+
+  private EmbeddingStore(
+    Path directory,
+    EmbeddingStoreConfig config,
+    FileChannel lockChannel,
+    FileLock lock
+  ) {
+    this.directory = directory;
+    this.config = config;
+    this.lockChannel = lockChannel;
+    this.lock = lock;
+  }
+
+  /**
+   * Opens the store in the given directory, creating it when needed.
+   *
+   * @throws IllegalStateException when the store is already opened, possibly
+   * by another gateway sharing the directory
+   */
+  public static EmbeddingStore open(
+    Path directory,
+    EmbeddingStoreConfig config
+  ) throws IOException {
+    Files.createDirectories(directory);
+    var lockChannel = FileChannel.open(
+      directory.resolve(LOCK_FILE),
+      StandardOpenOption.CREATE,
+      StandardOpenOption.WRITE
+    );
+    FileLock lock;
+    try {
+      lock = lockChannel.tryLock();
+    } catch (OverlappingFileLockException e) {
+      lock = null;
+    }
+    if (lock == null) {
+      lockChannel.close();
+      throw new IllegalStateException(
+        "Embedding store is already in use: " + directory
+      );
+    }
+    // The lock file tells when the store was last used, see collect
+    Files.setLastModifiedTime(
+      directory.resolve(LOCK_FILE),
+      FileTime.fromMillis(System.currentTimeMillis())
+    );
+
+    var store = new EmbeddingStore(directory, config, lockChannel, lock);
+    try {
+      store.load();
+    } catch (IOException | RuntimeException e) {
+      store.close();
+      throw e;
+    }
+    return store;
+  }
+
+  /**
+   * Deletes the stores in the root directory that no gateway has opened for
+   * longer than the given age.
+   */
+  public static void collect(Path root, Duration maxAge) {
+    if (!Files.isDirectory(root)) {
+      return;
+    }
+    var expiry = FileTime.fromMillis(
+      System.currentTimeMillis() - maxAge.toMillis()
+    );
+    try (var directories = Files.list(root)) {
+      for (var directory : directories.filter(Files::isDirectory).toList()) {
+        var lockFile = directory.resolve(LOCK_FILE);
+        if (
+          Files.isRegularFile(lockFile) &&
+          Files.getLastModifiedTime(lockFile).compareTo(expiry) < 0
+        ) {
+          collectIfUnused(directory, lockFile);
+        }
+      }
+    } catch (IOException e) {
+      LOGGER.warn("Failed to collect embedding stores in {}", root, e);
+    }
+  }
+
+  private static void collectIfUnused(Path directory, Path lockFile)
+    throws IOException {
+    try (
+      var channel = FileChannel.open(lockFile, StandardOpenOption.WRITE);
+      var lock = channel.tryLock()
+    ) {
+      if (lock == null) {
+        return;
+      }
+      // The lock file goes last, once the lock is released
+      try (var files = Files.list(directory)) {
+        for (var file : files.filter(f -> !f.equals(lockFile)).toList()) {
+          Files.delete(file);
+        }
+      }
+    } catch (OverlappingFileLockException e) {
+      return;
+    }
+    Files.delete(lockFile);
+    Files.delete(directory);
+    LOGGER.debug("Deleted unused embedding store {}", directory);
+  }
+
+  public synchronized EmbeddingTokenCount get(String text) {
+    if (index == null) {
+      return null;
+    }
+    var digest = digest(text);
+    int slot = find(digest);
+    if (slot >= 0) {
+      long location = index.getLong(slot * SLOT_BYTES + 8);
+      var embedding = read(location, digest);
+      if (embedding != null) {
+        index.putLong(slot * SLOT_BYTES + 8, location | REFERENCED);
+        hits++;
+        return embedding;
+      }
+    }
+    misses++;
+    return null;
+  }
+
+  public synchronized void put(String text, EmbeddingTokenCount embedding) {
+    if (index == null) {
+      return;
+    }
+    var digest = digest(text);
+    if (find(digest) >= 0) {
+      return;
+    }
+    var vector = embedding.embedding();
+    if (RECORD_OVERHEAD + 4L * vector.length > config.segmentBytes()) {
+      LOGGER.debug("Embedding of {} dimensions is too large", vector.length);
+      return;
+    }
+    try {
+      long location = append(digest, embedding.tokenCount(), vector);
+      insert(digest, location);
+      entries++;
+      compact();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  public synchronized CacheStats stats() {
+    return new CacheStats(hits, misses, evictions, entries, bytes);
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    var active = segments.peekLast();
+    if (active != null && active.writable) {
+      active.buffer.force();
+    }
+    segments.forEach(segment -> unmap(segment.buffer));
+    segments.clear();
+    if (index != null) {
+      unmap(index);
+      index = null;
+      Files.deleteIfExists(indexPath);
+    }
+    if (lock != null && lock.isValid()) {
+      lock.release();
+    }
+    lockChannel.close();
+  }
+
+  private void load() throws IOException {
+    int[] ids;
+    try (var files = Files.list(directory)) {
+      var names = files.map(path -> path.getFileName().toString()).toList();
+      // Left behind when the gateway stopped without closing the store
+      for (var name : names) {
+        if (name.startsWith(INDEX_PREFIX) && name.endsWith(INDEX_SUFFIX)) {
+          Files.deleteIfExists(directory.resolve(name));
+        }
+      }
+      ids = names
+        .stream()
+        .filter(name -> name.startsWith(SEGMENT_PREFIX))
+        .filter(name -> name.endsWith(SEGMENT_SUFFIX))
+        .mapToInt(EmbeddingStore::segmentId)
+        .filter(id -> id > 0)
+        .sorted()
+        .toArray();
+    }
+    mapIndex(MIN_SLOTS);
+    for (int i = 0; i < ids.length; i++) {
+      var segment = mapSegment(ids[i], i == ids.length - 1);
+      segments.addLast(segment);
+      scan(segment);
+    }
+    if (segments.isEmpty() || !segments.peekLast().writable) {
+      roll();
+    }
+    LOGGER.debug("Opened embedding store {}: {}", directory, stats());
+  }
+
+  /**
+   * Indexes the valid records of a segment, stopping at the first invalid
+   * one, which is where the next record of the active segment is written.
+   */
+  private void scan(Segment segment) {
+    var buffer = segment.buffer;
+    int position = 0;
+    while (true) {
+      int length = recordLength(buffer, position);
+      if (length < 0) {
+        break;
+      }
+      var digest = new byte[DIGEST_BYTES];
+      buffer.get(position + 4, digest);
+      if (insert(digest, location(segment.id, position))) {
+        entries++;
+      }
+      position += length;
+    }
+    segment.size = position;
+    bytes += position;
+  }
+
+  /**
+   * @return the length of the valid record at the position, or -1
+   */
+  private static int recordLength(MappedByteBuffer buffer, int position) {
+    if (position + RECORD_OVERHEAD > buffer.capacity()) {
+      return -1;
+    }
+    if (buffer.getInt(position) != RECORD_MAGIC) {
+      return -1;
+    }
+    int dimensions = buffer.getInt(position + 4 + DIGEST_BYTES + 4);
+    long length = RECORD_OVERHEAD + 4L * dimensions;
+    if (dimensions < 0 || position + length > buffer.capacity()) {
+      return -1;
+    }
+    var crc = new CRC32C();
+    crc.update(buffer.slice(position, (int) length - 4));
+    if ((int) crc.getValue() != buffer.getInt(position + (int) length - 4)) {
+      return -1;
+    }
+    return (int) length;
+  }
+
+  private EmbeddingTokenCount read(long location, byte[] digest) {
+    var segment = segment(segmentId(location));
+    return segment == null ? null : read(segment, offset(location), digest);
+  }
+
+  private static EmbeddingTokenCount read(
+    Segment segment,
+    int position,
+    byte[] digest
+  ) {
+    var buffer = segment.buffer;
+    var stored = new byte[DIGEST_BYTES];
+    buffer.get(position + 4, stored);
+    if (!Arrays.equals(stored, digest)) {
+      return null;
+    }
+    int tokenCount = buffer.getInt(position + 4 + DIGEST_BYTES);
+    int dimensions = buffer.getInt(position + 4 + DIGEST_BYTES + 4);
+    var vector = new float[dimensions];
+    buffer
+      .slice(position + RECORD_OVERHEAD - 4, 4 * dimensions)
+      .order(ByteOrder.LITTLE_ENDIAN)
+      .asFloatBuffer()
+      .get(vector);
+    return new EmbeddingTokenCount(vector, tokenCount);
+  }
+
+  private long append(byte[] digest, int tokenCount, float[] vector)
+    throws IOException {
+    int length = RECORD_OVERHEAD + 4 * vector.length;
+    var active = segments.peekLast();
+    if (active.size + length > active.buffer.capacity()) {
+      active = roll();
+    }
+    var buffer = active.buffer;
+    int position = active.size;
+    buffer.putInt(position, RECORD_MAGIC);
+    buffer.put(position + 4, digest);
+    buffer.putInt(position + 4 + DIGEST_BYTES, tokenCount);
+    buffer.putInt(position + 4 + DIGEST_BYTES + 4, vector.length);
+    buffer
+      .slice(position + RECORD_OVERHEAD - 4, 4 * vector.length)
+      .order(ByteOrder.LITTLE_ENDIAN)
+      .asFloatBuffer()
+      .put(vector);
+    // The checksum is written last so that a torn record is never valid
+    var crc = new CRC32C();
+    crc.update(buffer.slice(position, length - 4));
+    buffer.putInt(position + length - 4, (int) crc.getValue());
+    active.size += length;
+    bytes += length;
+    return location(active.id, position);
+  }
+
+  private Segment roll() throws IOException {
+    var previous = segments.peekLast();
+    int id = 1;
+    if (previous != null) {
+      id = previous.id + 1;
+      if (previous.writable) {
+        previous.buffer.force();
+        previous.writable = false;
+      }
+    }
+    var segment = mapSegment(id, true);
+    segments.addLast(segment);
+    return segment;
+  }
+
+  /**
+   * Drops the oldest segments while over budget, copying the records read
+   * since they were written to the active segment.
+   */
+  private void compact() throws IOException {
+    while (bytes > config.maxBytes() && segments.size() > 1) {
+      var oldest = segments.pollFirst();
+      var buffer = oldest.buffer;
+      int position = 0;
+      while (position < oldest.size) {
+        int length = recordLength(buffer, position);
+        if (length < 0) {
+          break;
+        }
+        var digest = new byte[DIGEST_BYTES];
+        buffer.get(position + 4, digest);
+        int slot = find(digest);
+        long location = slot < 0 ? 0 : index.getLong(slot * SLOT_BYTES + 8);
+        if (
+          slot >= 0 &&
+          (location & ~REFERENCED) == location(oldest.id, position)
+        ) {
+          if ((location & REFERENCED) != 0) {
+            var embedding = read(oldest, position, digest);
+            var moved = append(
+              digest,
+              embedding.tokenCount(),
+              embedding.embedding()
+            );
+            index.putLong(slot * SLOT_BYTES + 8, moved);
+          } else {
+            delete(slot);
+            entries--;
+            evictions++;
+          }
+        }
+        position += length;
+      }
+      bytes -= oldest.size;
+      unmap(buffer);
+      Files.deleteIfExists(segmentPath(oldest.id));
+      LOGGER.debug("Compacted embedding segment {}", oldest.id);
+    }
+  }
+
+  private int find(byte[] digest) {
+    long fingerprint = fingerprint(digest);
+    int mask = slots - 1;
+    for (int slot = (int) mix(fingerprint) & mask; ; slot = (slot + 1) & mask) {
+      long location = index.getLong(slot * SLOT_BYTES + 8);
+      if (location == 0) {
+        return -1;
+      }
+      if (index.getLong(slot * SLOT_BYTES) == fingerprint) {
+        return slot;
+      }
+    }
+  }
+
+  /**
+   * @return whether a new entry was added, rather than an existing one updated
+   */
+  private boolean insert(byte[] digest, long location) {
+    if (entries + 1 > slots / 2) {
+      resize(slots * 2);
+    }
+    long fingerprint = fingerprint(digest);
+    int mask = slots - 1;
+    for (int slot = (int) mix(fingerprint) & mask; ; slot = (slot + 1) & mask) {
+      long current = index.getLong(slot * SLOT_BYTES + 8);
+      if (current == 0 || index.getLong(slot * SLOT_BYTES) == fingerprint) {
+        index.putLong(slot * SLOT_BYTES, fingerprint);
+        index.putLong(slot * SLOT_BYTES + 8, location);
+        return current == 0;
+      }
+    }
+  }
+
+  /**
+   * Removes a slot by shifting back the entries of its probe sequence.
+   */
+  private void delete(int slot) {
+    int mask = slots - 1;
+    int hole = slot;
+    for (int next = (hole + 1) & mask; ; next = (next + 1) & mask) {
+      long location = index.getLong(next * SLOT_BYTES + 8);
+      if (location == 0) {
+        break;
+      }
+      long fingerprint = index.getLong(next * SLOT_BYTES);
+      int home = (int) mix(fingerprint) & mask;
+      // Move the entry unless its home lies cyclically in (hole, next]
+      boolean movable = hole <= next
+        ? home <= hole || home > next
+        : home <= hole && home > next;
+      if (movable) {
+        index.putLong(hole * SLOT_BYTES, fingerprint);
+        index.putLong(hole * SLOT_BYTES + 8, location);
+        hole = next;
+      }
+    }
+    index.putLong(hole * SLOT_BYTES, 0);
+    index.putLong(hole * SLOT_BYTES + 8, 0);
+  }
+
+  private void resize(int newSlots) {
+    var previous = index;
+    var previousPath = indexPath;
+    int previousSlots = slots;
+    try {
+      mapIndex(newSlots);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    int mask = slots - 1;
+    for (int i = 0; i < previousSlots; i++) {
+      long location = previous.getLong(i * SLOT_BYTES + 8);
+      if (location != 0) {
+        long fingerprint = previous.getLong(i * SLOT_BYTES);
+        int slot = (int) mix(fingerprint) & mask;
+        while (index.getLong(slot * SLOT_BYTES + 8) != 0) {
+          slot = (slot + 1) & mask;
+        }
+        index.putLong(slot * SLOT_BYTES, fingerprint);
+        index.putLong(slot * SLOT_BYTES + 8, location);
+      }
+    }
+    unmap(previous);
+    try {
+      Files.deleteIfExists(previousPath);
+    } catch (IOException e) {
+      LOGGER.debug("Failed to delete index {}", previousPath, e);
+    }
+  }
+
+  /**
+   * Maps a fresh index file, named after its size so that it does not replace
+   * the current one while it is copied.
+   */
+  private void mapIndex(int newSlots) throws IOException {
+    var path = directory.resolve(INDEX_PREFIX + newSlots + INDEX_SUFFIX);
+    Files.deleteIfExists(path);
+    try (
+      var channel = FileChannel.open(
+        path,
+        StandardOpenOption.CREATE_NEW,
+        StandardOpenOption.READ,
+        StandardOpenOption.WRITE
+      )
+    ) {
+      index = channel.map(MapMode.READ_WRITE, 0, (long) newSlots * SLOT_BYTES);
+    }
+    indexPath = path;
+    slots = newSlots;
+  }
+
+  private Segment mapSegment(int id, boolean writable) throws IOException {
+    var path = segmentPath(id);
+    if (writable) {
+      try (
+        var channel = FileChannel.open(
+          path,
+          StandardOpenOption.CREATE,
+          StandardOpenOption.READ,
+          StandardOpenOption.WRITE
+        )
+      ) {
+        var buffer = channel.map(MapMode.READ_WRITE, 0, config.segmentBytes());
+        return new Segment(id, buffer, true);
+      }
+    }
+    try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      var buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+      return new Segment(id, buffer, false);
+    }
+  }
+
+  private Segment segment(int id) {
+    for (var segment : segments) {
+      if (segment.id == id) {
+        return segment;
+      }
+    }
+    return null;
+  }
+
+  private Path segmentPath(int id) {
+    return directory.resolve(
+      SEGMENT_PREFIX + String.format("%010d", id) + SEGMENT_SUFFIX
+    );
+  }
+
+  private static int segmentId(String fileName) {
+    try {
+      return Integer.parseInt(
+        fileName.substring(
+          SEGMENT_PREFIX.length(),
+          fileName.length() - SEGMENT_SUFFIX.length()
+        )
+      );
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * Unmaps the buffer, which must not be accessed anymore.
+   */
+  private static void unmap(MappedByteBuffer buffer) {
+    if (UNMAPPER == null) {
+      return;
+    }
+    try {
+      UNMAPPER.invokeExact((ByteBuffer) buffer);
+    } catch (Throwable e) {
+      LOGGER.debug("Failed to unmap buffer", e);
+    }
+  }
+
+  /**
+   * @return the handle unmapping a buffer, or {@code null} when the runtime
+   * does not have one, mapped buffers then being unmapped when collected
+   */
+  private static MethodHandle unmapper() {
+    try {
+      var unsafeClass = Class.forName("sun.misc.Unsafe");
+      var theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+      theUnsafe.setAccessible(true);
+      return MethodHandles.lookup()
+        .findVirtual(
+          unsafeClass,
+          "invokeCleaner",
+          MethodType.methodType(void.class, ByteBuffer.class)
+        )
+        .bindTo(theUnsafe.get(null));
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      LOGGER.debug("Mapped buffers will be unmapped when collected", e);
+      return null;
+    }
+  }
+
+  private static byte[] digest(String text) {
+    return ModelKeys.digest().digest(text.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static long fingerprint(byte[] digest) {
+    long fingerprint = 0;
+    for (int i = 0; i < 8; i++) {
+      fingerprint = (fingerprint << 8) | (digest[i] & 0xff);
+    }
+    return fingerprint;
+  }
+
+  private static long mix(long fingerprint) {
+    return fingerprint ^ (fingerprint >>> 32);
+  }
+
+  private static long location(int segmentId, int offset) {
+    return ((long) segmentId << 32) | offset;
+  }
+
+  private static int segmentId(long location) {
+    return (int) ((location & ~REFERENCED) >>> 32);
+  }
+
+  private static int offset(long location) {
+    return (int) location;
+  }
+
+  private static final class Segment {
+
+    private final int id;
+    private final MappedByteBuffer buffer;
+    private boolean writable;
+    private int size;
+
+    private Segment(int id, MappedByteBuffer buffer, boolean writable) {
+      this.id = id;
+      this.buffer = buffer;
+      this.writable = writable;
+    }
+  }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.inference.service.cache;
+
+import io.gravitee.inference.api.embedding.EmbeddingTokenCount;
+import io.gravitee.inference.service.handler.config.CacheConfig;
+import io.vertx.core.json.Json;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * In-memory cache of inference outputs keyed by their input.
+ * <p>
+ * Entries are evicted in least recently used order as soon as either the
+ * number of entries or their estimated size exceeds its bound, and expire
+ * after {@link CacheConfig#ttlMillis()} when set. Lookups are cheap enough to
+ * run on the event loop.
+ *
+ * @author GraviteeSource Team
+ */
+public class ResultCache {
+
+  private final CacheConfig config;
+  private final LongSupplier nanoClock;
+  private final LinkedHashMap<Object, Entry> entries = new LinkedHashMap<>(
+    16,
+    0.75f,
+    true
+  );
+
+  private long bytes;
+  private long hits;
+  private long misses;
+  private long evictions;
+
+  public ResultCache(CacheConfig config) {
+    this(config, System::nanoTime);
+  }
+
+  ResultCache(CacheConfig config, LongSupplier nanoClock) {
+    this.config = config;
+    this.nanoClock = nanoClock;
+  }
+
+  public synchronized Object get(Object input) {
+    var entry = input == null ? null : entries.get(input);
+    if (entry != null && entry.isExpired(nanoClock.getAsLong())) {
+      remove(input, entry);
+      entry = null;
+    }
+    if (entry == null) {
+      misses++;
+      return null;
+    }
+    hits++;
+    return entry.value();
+  }
+
+  public synchronized void put(Object input, Object output) {
+    if (input == null || output == null) {
+      return;
+    }
+    var weight = weigh(input) + weigh(output);
+    if (config.maxBytes() > 0 && weight > config.maxBytes()) {
+      return;
+    }
+    var ttlNanos = TimeUnit.MILLISECONDS.toNanos(config.ttlMillis());
+    var expiresAt = ttlNanos > 0
+      ? nanoClock.getAsLong() + ttlNanos
+      : Long.MAX_VALUE;
+    var previous = entries.put(input, new Entry(output, weight, expiresAt));
+    if (previous != null) {
+      bytes -= previous.weight();
+    }
+    bytes += weight;
+    evict();
+  }
+
+  public synchronized CacheStats stats() {
+    return new CacheStats(hits, misses, evictions, entries.size(), bytes);
+  }
+
+  public synchronized void clear() {
+    entries.clear();
+    bytes = 0;
+  }
+
+  private void evict() {
+    Iterator<Map.Entry<Object, Entry>> eldest = entries.entrySet().iterator();
+    while (isOverBounds() && eldest.hasNext()) {
+      bytes -= eldest.next().getValue().weight();
+      eldest.remove();
+      evictions++;
+    }
+  }
+
+  private boolean isOverBounds() {
+    return (
+      (config.maxEntries() > 0 && entries.size() > config.maxEntries()) ||
+      (config.maxBytes() > 0 && bytes > config.maxBytes())
+    );
+  }
+
+  private void remove(Object input, Entry entry) {
+    entries.remove(input);
+    bytes -= entry.weight();
+    evictions++;
+  }
+
+  /**
+   * Rough heap footprint of an input or output, only used to bound the cache.
+   */
+  static long weigh(Object value) {
+    return switch (value) {
+      case String string -> 40L + 2L * string.length();
+      case float[] vector -> 16L + 4L * vector.length;
+      case EmbeddingTokenCount embedding -> 32L + weigh(embedding.embedding());
+      case List<?> list -> 16L + weighAll(list);
+      case null -> 0L;
+      default -> Json.encode(value).length();
+    };
+  }
+
+  private static long weighAll(List<?> values) {
+    return values.stream().mapToLong(ResultCache::weigh).sum();
+  }
+
+  private record Entry(Object value, long weight, long expiresAt) {
+    boolean isExpired(long now) {
+      return now - expiresAt >= 0 && expiresAt != Long.MAX_VALUE;
+    }
+  }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.inference.service.codec;
+
+import io.gravitee.inference.api.classifier.ClassifierResults;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.MessageCodec;
+import io.vertx.core.json.Json;
+import java.util.List;
+
+/**
+ * Passes classification results through as an immutable copy of their list
+ * when the consumer runs in the same JVM, as the sent instance may be cached
+ * and shared with other requests. Over the wire they are sent as length
+ * prefixed JSON.
+ *
+ * @author GraviteeSource Team
+ */
+public class ClassifierResultsCodec
+  implements MessageCodec<ClassifierResults, ClassifierResults> {
+
+  public static final String NAME = "inference-classifier-results";
+
+  @Override
+  public void encodeToWire(Buffer buffer, ClassifierResults results) {
+    var json = Json.encodeToBuffer(results);
+    buffer.appendInt(json.length()).appendBuffer(json);
+  }
+
+  @Override
+  public ClassifierResults decodeFromWire(int pos, Buffer buffer) {
+    int length = buffer.getInt(pos);
+    return Json.decodeValue(
+      buffer.getBuffer(pos + 4, pos + 4 + length),
+      ClassifierResults.class
+    );
+  }
+
+  @Override
+  public ClassifierResults transform(ClassifierResults results) {
+    return new ClassifierResults(List.copyOf(results.results()));
+  }
+
+  @Override
+  public String name() {
+    return NAME;
+  }
+
+  @Override
+  public byte systemCodecID() {
+    return -1;
+  }
+}
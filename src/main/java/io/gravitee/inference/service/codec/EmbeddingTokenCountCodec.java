@@ -0,0 +1,74 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.inference.service.codec;
+
+import io.gravitee.inference.api.embedding.EmbeddingTokenCount;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.MessageCodec;
+
+/**
+ * Sends embeddings as raw little-endian floats instead of decimal JSON text.
+ * When the consumer runs in the same JVM, it gets a copy of the vector, as
+ * the sent instance may be cached and shared with other requests.
+ * <p>
+ * Wire layout: the token count, the vector dimension, then the vector values,
+ * all little-endian.
+ *
+ * @author GraviteeSource Team
+ */
+public class EmbeddingTokenCountCodec
+  implements MessageCodec<EmbeddingTokenCount, EmbeddingTokenCount> {
+
+  public static final String NAME = "inference-embedding";
+
+  @Override
+  public void encodeToWire(Buffer buffer, EmbeddingTokenCount embedding) {
+    var vector = embedding.embedding();
+    buffer.appendIntLE(embedding.tokenCount()).appendIntLE(vector.length);
+    for (float value : vector) {
+      buffer.appendFloatLE(value);
+    }
+  }
+
+  @Override
+  public EmbeddingTokenCount decodeFromWire(int pos, Buffer buffer) {
+    int tokenCount = buffer.getIntLE(pos);
+    var vector = new float[buffer.getIntLE(pos + 4)];
+    int offset = pos + 8;
+    for (int i = 0; i < vector.length; i++, offset += Float.BYTES) {
+      vector[i] = buffer.getFloatLE(offset);
+    }
+    return new EmbeddingTokenCount(vector, tokenCount);
+  }
+
+  @Override
+  public EmbeddingTokenCount transform(EmbeddingTokenCount embedding) {
+    return new EmbeddingTokenCount(
+      embedding.embedding().clone(),
+      embedding.tokenCount()
+    );
+  }
+
+  @Override
+  public String name() {
+    return NAME;
+  }
+
+  @Override
+  public byte systemCodecID() {
+    return -1;
+  }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.inference.service.codec;
+
+import io.gravitee.inference.api.classifier.ClassifierResults;
+import io.gravitee.inference.api.embedding.EmbeddingTokenCount;
+import io.gravitee.inference.api.service.InferenceRequest;
+import io.reactivex.rxjava3.disposables.CompositeDisposable;
+import io.reactivex.rxjava3.disposables.Disposable;
+import io.reactivex.rxjava3.functions.Action;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.json.Json;
+import io.vertx.rxjava3.core.eventbus.Message;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Registers the inference message codecs and reads/writes inference messages
+ * in either representation.
+ * <p>
+ * Callers sending a JSON {@link Buffer} get a JSON reply, callers sending an
+ * {@link InferenceRequest} object get the output object back, encoded with the
+ * binary codecs when crossing JVMs and passed through otherwise.
+ *
+ * @author GraviteeSource Team
+ */
+public final class InferenceCodecs {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(
+    InferenceCodecs.class
+  );
+
+  private static final DeliveryOptions OUTPUTS_DELIVERY_OPTIONS =
+    new DeliveryOptions().setCodecName(InferenceOutputsCodec.NAME);
+
+  private InferenceCodecs() {}
+
+  /**
+   * Registers the inference codecs not registered yet on the event bus.
+   *
+   * @return unregisters the codecs registered by this call once disposed,
+   * leaving those another plugin sharing the event bus registered
+   */
+  public static Disposable register(EventBus eventBus) {
+    var registered = new CompositeDisposable();
+    register(
+      registered,
+      () ->
+        eventBus.registerDefaultCodec(
+          InferenceRequest.class,
+          new InferenceRequestCodec()
+        ),
+      () -> eventBus.unregisterDefaultCodec(InferenceRequest.class)
+    );
+    register(
+      registered,
+      () ->
+        eventBus.registerDefaultCodec(
+          EmbeddingTokenCount.class,
+          new EmbeddingTokenCountCodec()
+        ),
+      () -> eventBus.unregisterDefaultCodec(EmbeddingTokenCount.class)
+    );
+    register(
+      registered,
+      () ->
+        eventBus.registerDefaultCodec(
+          ClassifierResults.class,
+          new ClassifierResultsCodec()
+        ),
+      () -> eventBus.unregisterDefaultCodec(ClassifierResults.class)
+    );
+    register(
+      registered,
+      () -> eventBus.registerCodec(new InferenceOutputsCodec()),
+      () -> eventBus.unregisterCodec(InferenceOutputsCodec.NAME)
+    );
+    return registered;
+  }
+
+  private static void register(
+    CompositeDisposable registered,
+    Runnable registration,
+    Action unregistration
+  ) {
+    try {
+      registration.run();
+      registered.add(Disposable.fromAction(unregistration));
+    } catch (IllegalStateException e) {
+      // Another plugin sharing the event bus may have registered it already
+      LOGGER.debug("Inference codec not registered: {}", e.getMessage());
+    }
+  }
+
+  public static InferenceRequest decodeRequest(Object body) {
+    return switch (body) {
+      case InferenceRequest request -> request;
+      case Buffer buffer -> Json.decodeValue(buffer, InferenceRequest.class);
+      case null, default -> throw new IllegalArgumentException(
+        "Unsupported message body: " +
+        (body == null ? null : body.getClass().getName())
+      );
+    };
+  }
+
+  public static void reply(Message<Object> message, Object output) {
+    if (message.body() instanceof Buffer) {
+      message.reply(Json.encodeToBuffer(output));
+    } else if (output instanceof List<?>) {
+      message.reply(output, OUTPUTS_DELIVERY_OPTIONS);
+    } else if (
+      output instanceof EmbeddingTokenCount ||
+      output instanceof ClassifierResults
+    ) {
+      message.reply(output);
+    } else {
+      message.reply(Json.encodeToBuffer(output));
+    }
+  }
+
+  /**
+   * @return the code carried by a {@link ReplyException}, or 400 for any
+   * other error
+   */
+  public static int failureCode(Throwable error) {
+    return error instanceof ReplyException replyException
+      ? replyException.failureCode()
+      : 400;
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.inference.service.codec;
+
+import io.gravitee.inference.api.classifier.ClassifierResults;
+import io.gravitee.inference.api.embedding.EmbeddingTokenCount;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.MessageCodec;
+import io.vertx.core.json.Json;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sends the ordered outputs of a batch INFER request. When the consumer runs
+ * in the same JVM, it gets a copy of the list and of its outputs, as done by
+ * the matching output codecs.
+ * <p>
+ * Wire layout: the number of outputs, then for each output a type byte, its
+ * encoded length and the bytes written by the matching output codec. Outputs
+ * without a dedicated codec are written as JSON.
+ *
+ * @author GraviteeSource Team
+ */
+public class InferenceOutputsCodec
+  implements MessageCodec<List<Object>, List<Object>> {
+
+  public static final String NAME = "inference-outputs";
+
+  private static final byte EMBEDDING = 0;
+  private static final byte CLASSIFIER_RESULTS = 1;
+  private static final byte JSON = 2;
+
+  private final EmbeddingTokenCountCodec embeddingCodec =
+    new EmbeddingTokenCountCodec();
+  private final ClassifierResultsCodec classifierResultsCodec =
+    new ClassifierResultsCodec();
+
+  @Override
+  public void encodeToWire(Buffer buffer, List<Object> outputs) {
+    buffer.appendInt(outputs.size());
+    for (var output : outputs) {
+      var encoded = Buffer.buffer();
+      byte type;
+      if (output instanceof EmbeddingTokenCount embedding) {
+        type = EMBEDDING;
+        embeddingCodec.encodeToWire(encoded, embedding);
+      } else if (output instanceof ClassifierResults results) {
+        type = CLASSIFIER_RESULTS;
+        classifierResultsCodec.encodeToWire(encoded, results);
+      } else {
+        type = JSON;
+        encoded.appendBuffer(Json.encodeToBuffer(output));
+      }
+      buffer.appendByte(type).appendInt(encoded.length()).appendBuffer(encoded);
+    }
+  }
+
+  @Override
+  public List<Object> decodeFromWire(int pos, Buffer buffer) {
+    int size = buffer.getInt(pos);
+    var outputs = new ArrayList<Object>(size);
+    int offset = pos + 4;
+    for (int i = 0; i < size; i++) {
+      byte type = buffer.getByte(offset);
+      int length = buffer.getInt(offset + 1);
+      int start = offset + 5;
+      outputs.add(
+        switch (type) {
+          case EMBEDDING -> embeddingCodec.decodeFromWire(start, buffer);
+          case CLASSIFIER_RESULTS -> classifierResultsCodec.decodeFromWire(
+            start,
+            buffer
+          );
+          default -> Json.decodeValue(buffer.getBuffer(start, start + length));
+        }
+      );
+      offset = start + length;
+    }
+    return outputs;
+  }
+
+  @Override
+  public List<Object> transform(List<Object> outputs) {
+    var copies = new ArrayList<Object>(outputs.size());
+    for (var output : outputs) {
+      copies.add(
+        switch (output) {
+          case EmbeddingTokenCount embedding -> embeddingCodec.transform(
+            embedding
+          );
+          case ClassifierResults results -> classifierResultsCodec.transform(
+            results
+          );
+          case null, default -> output;
+        }
+      );
+    }
+    return copies;
+  }
+
+  @Override
+  public String name() {
+    return NAME;
+  }
+
+  @Override
+  public byte systemCodecID() {
+    return -1;
+  }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.inference.service.handler;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Actions of the service address that are handled by this service only, on
+ * top of the {@link io.gravitee.inference.api.service.InferenceAction}s. They
+ * are sent as JSON requests, like START and STOP.
+ *
+ * @author GraviteeSource Team
+ */
+public enum AdminAction {
+  /**
+   * Replies with the metrics of every started model, or of the model whose
+   * address is given in the payload.
+   */
+  STATS,
+  /**
+   * Loads the model described by the payload, as for START, and serves it at
+   * the existing address given in the payload once warm. The previous model is
+   * released once the inferences running on it are done.
+   */
+  SWAP;
+
+  public static Optional<AdminAction> from(String action) {
+    return Arrays.stream(values())
+      .filter(value -> value.name().equals(action))
+      .findFirst();
+  }
+}
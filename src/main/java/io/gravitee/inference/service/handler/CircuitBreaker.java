@@ -0,0 +1,259 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.inference.service.handler;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import io.gravitee.inference.service.handler.config.CircuitBreakerConfig;
+import io.gravitee.inference.service.metrics.CircuitStats;
+import io.gravitee.inference.service.metrics.CircuitStats.State;
+import io.reactivex.rxjava3.core.Single;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.eventbus.ReplyFailure;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Circuit breaker of the calls of a remote model to its upstream API,
+ * following its {@link CircuitBreakerConfig}.
+ * <p>
+ * The outcomes of the last calls are kept in a sliding window. When too many
+ * of them failed or were slow, the breaker opens and calls fail immediately
+ * with a {@code 503} status, without reaching the upstream. Once open long
+ * enough, the breaker lets a few probe calls through: it closes when they all
+ * succeed and opens again as soon as one fails.
+ * <p>
+ * Calls failing with a status below {@code 500}, such as a rejected input or a
+ * rate limit, are answers of a healthy upstream and count as successes.
+ *
+ * @author GraviteeSource Team
+ */
+class CircuitBreaker {
+
+  static final int OPEN_STATUS = 503;
+
+  private static final byte FAILED = 1;
+  private static final byte SLOW = 2;
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(
+    CircuitBreaker.class
+  );
+
+  private final String name;
+  private final CircuitBreakerConfig config;
+  private final LongSupplier nanoClock;
+
+  // Outcomes of the last calls, as FAILED and SLOW bits
+  private final byte[] window;
+  private int next;
+  private int calls;
+  private int failures;
+  private int slowCalls;
+
+  private State state = State.CLOSED;
+  private long openedAt;
+  private int probes;
+  private int probeSuccesses;
+  private long rejected;
+
+  CircuitBreaker(String name, CircuitBreakerConfig config) {
+    this(name, config, System::nanoTime);
+  }
+
+  CircuitBreaker(
+    String name,
+    CircuitBreakerConfig config,
+    LongSupplier nanoClock
+  ) {
+    this.name = name;
+    this.config = config;
+    this.nanoClock = nanoClock;
+    this.window = new byte[config.windowSize()];
+  }
+
+  /**
+   * @return the call, failing with a {@code 503} {@link ReplyException}
+   * without being made while the breaker is open
+   */
+  <T> Single<T> call(Supplier<Single<T>> call) {
+    if (!isEnabled()) {
+      return Single.defer(call::get);
+    }
+    return Single.defer(() -> {
+      if (!tryAcquire()) {
+        return Single.error(
+          new ReplyException(
+            ReplyFailure.RECIPIENT_FAILURE,
+            OPEN_STATUS,
+            "Circuit breaker is open, retry in " + retryAfterMillis() + " ms"
+          )
+        );
+      }
+      var start = nanoClock.getAsLong();
+      var recorded = new AtomicBoolean();
+      return call
+        .get()
+        .doOnSuccess(__ -> {
+          if (recorded.compareAndSet(false, true)) {
+            record(false, nanoClock.getAsLong() - start);
+          }
+        })
+        .doOnError(error -> {
+          if (recorded.compareAndSet(false, true)) {
+            record(isFailure(error), nanoClock.getAsLong() - start);
+          }
+        })
+        .doOnDispose(() -> {
+          if (recorded.compareAndSet(false, true)) {
+            cancelled();
+          }
+        });
+    });
+  }
+
+  boolean isEnabled() {
+    return config.enabled();
+  }
+
+  synchronized boolean tryAcquire() {
+    if (state == State.OPEN && openRemainingNanos() <= 0) {
+      transition(State.HALF_OPEN);
+    }
+    if (state == State.HALF_OPEN && probes < config.halfOpenProbes()) {
+      probes++;
+      return true;
+    }
+    if (state == State.CLOSED) {
+      return true;
+    }
+    rejected++;
+    return false;
+  }
+
+  synchronized void record(boolean failed, long nanos) {
+    var slow =
+      config.isSlowCallCounted() &&
+      nanos > MILLISECONDS.toNanos(config.slowCallMillis());
+    switch (state) {
+      case CLOSED -> {
+        add((byte) ((failed ? FAILED : 0) | (slow ? SLOW : 0)));
+        if (calls >= config.minimumCalls() && isAboveThresholds()) {
+          open();
+        }
+      }
+      case HALF_OPEN -> {
+        if (failed || slow) {
+          open();
+        } else if (++probeSuccesses >= config.halfOpenProbes()) {
+          reset();
+          transition(State.CLOSED);
+        }
+      }
+      // Calls let through before the breaker opened
+      case OPEN -> {}
+    }
+  }
+
+  /**
+   * A call given up by its caller before completing: a probe is given back.
+   */
+  private synchronized void cancelled() {
+    if (state == State.HALF_OPEN && probes > probeSuccesses) {
+      probes--;
+    }
+  }
+
+  synchronized CircuitStats stats() {
+    return new CircuitStats(
+      state,
+      calls,
+      rate(failures),
+      rate(slowCalls),
+      rejected
+    );
+  }
+
+  private synchronized long retryAfterMillis() {
+    return Math.max(
+      0,
+      MILLISECONDS.convert(openRemainingNanos(), NANOSECONDS)
+    );
+  }
+
+  private long openRemainingNanos() {
+    return (
+      MILLISECONDS.toNanos(config.openMillis()) -
+      (nanoClock.getAsLong() - openedAt)
+    );
+  }
+
+  private void add(byte outcome) {
+    if (calls == window.length) {
+      var evicted = window[next];
+      failures -= evicted & FAILED;
+      slowCalls -= (evicted & SLOW) >> 1;
+    } else {
+      calls++;
+    }
+    window[next] = outcome;
+    failures += outcome & FAILED;
+    slowCalls += (outcome & SLOW) >> 1;
+    next = (next + 1) % window.length;
+  }
+
+  private boolean isAboveThresholds() {
+    return (
+      rate(failures) >= config.failureRateThreshold() ||
+      (config.isSlowCallCounted() &&
+        rate(slowCalls) >= config.slowCallRateThreshold())
+    );
+  }
+
+  private double rate(int count) {
+    return calls == 0 ? 0d : (100d * count) / calls;
+  }
+
+  private void open() {
+    openedAt = nanoClock.getAsLong();
+    transition(State.OPEN);
+  }
+
+  private void reset() {
+    next = 0;
+    calls = 0;
+    failures = 0;
+    slowCalls = 0;
+  }
+
+  private void transition(State to) {
+    if (to == State.OPEN) {
+      LOGGER.warn("Circuit breaker of {} is open", name);
+    } else if (state != to) {
+      LOGGER.info("Circuit breaker of {} is now {}", name, to);
+    }
+    state = to;
+    probes = 0;
+    probeSuccesses = 0;
+  }
+
+  static boolean isFailure(Throwable error) {
+    return UpstreamCalls.toReplyException(error).failureCode() >= 500;
+  }
+}
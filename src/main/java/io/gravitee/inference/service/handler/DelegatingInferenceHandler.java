@@ -15,11 +15,39 @@
  */
 package io.gravitee.inference.service.handler;
 
+import io.gravitee.inference.api.Constants;
+import io.gravitee.inference.api.service.InferenceAction;
+import io.gravitee.inference.api.utils.ConfigWrapper;
+import io.gravitee.inference.service.cache.ResultCache;
+import io.gravitee.inference.service.codec.InferenceCodecs;
+import io.gravitee.inference.service.handler.config.BatchConfig;
+import io.gravitee.inference.service.handler.config.CacheConfig;
+import io.gravitee.inference.service.handler.config.WorkerConfig;
+import io.gravitee.inference.service.metrics.ModelMetrics;
+import io.reactivex.rxjava3.core.Completable;
+import io.reactivex.rxjava3.core.Maybe;
+import io.reactivex.rxjava3.core.Scheduler;
+import io.reactivex.rxjava3.core.Single;
 import io.reactivex.rxjava3.disposables.Disposable;
-import io.vertx.core.buffer.Buffer;
+import io.reactivex.rxjava3.subjects.CompletableSubject;
+import io.reactivex.rxjava3.subjects.SingleSubject;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.eventbus.ReplyFailure;
 import io.vertx.rxjava3.core.RxHelper;
 import io.vertx.rxjava3.core.Vertx;
+import io.vertx.rxjava3.core.WorkerExecutor;
 import io.vertx.rxjava3.core.eventbus.Message;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -27,64 +55,417 @@ import org.slf4j.LoggerFactory;
  * @author Rémi SULTAN (remi.sultan at graviteesource.com)
  * @author GraviteeSource Team
  */
-public class DelegatingInferenceHandler implements InferenceHandler {
+public final class DelegatingInferenceHandler implements InferenceHandler {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(
     DelegatingInferenceHandler.class
   );
   private final String address;
   private final Disposable consumer;
-  private InferenceHandler delegate;
+  private final ResultCache cache;
+  private final ModelMetrics metrics;
+  private final WorkerExecutor workerExecutor;
+  private final Scheduler scheduler;
+  private final int threads;
+  private final int queueSize;
+  private final AtomicInteger queued = new AtomicInteger();
+  private final boolean isRemote;
+  private final AtomicReference<Delegate> delegate = new AtomicReference<>();
+  // Number of swaps of the model, updated along with the cache
+  private final AtomicLong generation = new AtomicLong();
+  // Inferences running on the model, by input
+  private final Map<Object, SingleSubject<Object>> running =
+    new ConcurrentHashMap<>();
+  // Calls accepted and not replied to yet
+  private final Set<InferenceCall> pending = ConcurrentHashMap.newKeySet();
 
   public DelegatingInferenceHandler(
     String address,
     Vertx vertx,
-    boolean isRemote
+    boolean isRemote,
+    BatchConfig batchConfig,
+    CacheConfig cacheConfig,
+    WorkerConfig workerConfig
   ) {
     this.address = address;
+    this.isRemote = isRemote;
+    this.metrics = new ModelMetrics(address);
     LOGGER.debug("Starting Delegating Inference handler at {}", address);
-    var scheduler = isRemote
-      ? RxHelper.scheduler(vertx)
-      : RxHelper.blockingScheduler(vertx);
+    if (isRemote) {
+      scheduler = RxHelper.scheduler(vertx);
+      workerExecutor = null;
+    } else if (workerConfig.isDedicated()) {
+      LOGGER.debug("Running model at {} with {}", address, workerConfig);
+      workerExecutor = vertx.createSharedWorkerExecutor(
+        address,
+        workerConfig.threads()
+      );
+      scheduler = RxHelper.blockingScheduler(workerExecutor);
+    } else {
+      scheduler = RxHelper.blockingScheduler(vertx);
+      workerExecutor = null;
+    }
+    this.threads = Math.max(1, workerConfig.threads());
+    this.queueSize = isRemote ? 0 : workerConfig.queueSize();
+
+    if (cacheConfig.isEnabled()) {
+      LOGGER.debug("Caching results at {} with {}", address, cacheConfig);
+      cache = new ResultCache(cacheConfig);
+    } else {
+      cache = null;
+    }
 
-    consumer = vertx
+    // Decoding and cache lookups stay on the event loop
+    var calls = vertx
       .eventBus()
-      .<Buffer>consumer(address)
+      .<Object>consumer(address)
       .toObservable()
-      .subscribeOn(scheduler)
-      .observeOn(scheduler)
-      .subscribe(this::handle);
+      .mapOptional(this::accept);
+    if (batchConfig.isEnabled() && !isRemote) {
+      // The model library runs one input per session call, batching local
+      // models would only delay their requests
+      LOGGER.warn("Ignoring the batch settings of local model {}", address);
+    }
+    if (batchConfig.isEnabled() && isRemote) {
+      LOGGER.debug("Batching messages at {} with {}", address, batchConfig);
+      var batcher = new InferenceBatcher<InferenceCall>(
+        vertx,
+        batchConfig,
+        this::handleCoalesced
+      );
+      consumer = calls.subscribe(batcher::offer);
+    } else if (workerExecutor != null) {
+      // Calls run concurrently, up to the number of threads of the pool
+      consumer = calls.subscribe(call ->
+        scheduler.scheduleDirect(() -> handle(call))
+      );
+    } else {
+      consumer = calls.observeOn(scheduler).subscribe(this::handle);
+    }
 
     LOGGER.debug("Inference handler at {} started", address);
   }
 
-  @Override
-  public void handle(Message<Buffer> message) {
-    if (delegate == null) {
-      message.fail(503, "Model is not ready");
+  /**
+   * Replies straight away to malformed requests, cache hits and requests that
+   * do not fit in the queue, and returns the call to run on the model
+   * otherwise.
+   */
+  private Optional<InferenceCall> accept(Message<Object> message) {
+    var receivedAt = System.nanoTime();
+    try {
+      var request = InferenceCodecs.decodeRequest(message.body());
+      if (request.action() != InferenceAction.INFER) {
+        fail(message, 405, "Unsupported action: " + request.action());
+        return Optional.empty();
+      }
+      var input = new ConfigWrapper(request.payload()).get(Constants.INPUT);
+      metrics.decoded(System.nanoTime() - receivedAt);
+      var output = cache == null ? null : cache.get(input);
+      if (output != null) {
+        reply(message, output, receivedAt);
+        return Optional.empty();
+      }
+      if (!admit()) {
+        var retry = "retry in " + retryMillis() + " ms";
+        fail(message, 429, "Model queue is full, " + retry);
+        return Optional.empty();
+      }
+      metrics.enqueued();
+      var call = new InferenceCall(
+        message,
+        input,
+        receivedAt,
+        System.nanoTime(),
+        generation.get()
+      );
+      pending.add(call);
+      return Optional.of(call);
+    } catch (Exception e) {
+      fail(message, 400, e.getMessage());
+      return Optional.empty();
+    }
+  }
+
+  private void handle(InferenceCall call) {
+    start(call);
+    sharedInfer(call.input()).subscribe(
+      output -> complete(call, output),
+      error -> complete(call, error)
+    );
+  }
+
+  /**
+   * Infers the distinct text inputs of the calls as one batch INFER, which
+   * remote models send upstream in a single request when their API accepts
+   * several inputs. Other inputs are inferred on their own.
+   */
+  private void handleCoalesced(List<InferenceCall> calls) {
+    calls.forEach(this::start);
+    var texts = new LinkedHashMap<String, List<InferenceCall>>();
+    for (var call : calls) {
+      if (call.input() instanceof String text) {
+        texts.computeIfAbsent(text, __ -> new ArrayList<>()).add(call);
+      } else {
+        sharedInfer(call.input()).subscribe(
+          output -> complete(call, output),
+          error -> complete(call, error)
+        );
+      }
+    }
+    if (texts.isEmpty()) {
+      return;
+    }
+    var inputs = List.copyOf(texts.keySet());
+    Single<List<?>> outputs = inputs.size() == 1
+      ? sharedInfer(inputs.getFirst()).map(List::of)
+      : sharedInfer(inputs).map(output -> (List<?>) output);
+    outputs.subscribe(
+      results -> {
+        for (int i = 0; i < inputs.size(); i++) {
+          var output = results.get(i);
+          texts.get(inputs.get(i)).forEach(call -> complete(call, output));
+        }
+      },
+      error ->
+        texts
+          .values()
+          .forEach(group -> group.forEach(call -> complete(call, error)))
+    );
+  }
+
+  private boolean admit() {
+    if (queueSize <= 0) {
+      queued.incrementAndGet();
+      return true;
+    }
+    if (queued.incrementAndGet() > queueSize) {
+      queued.decrementAndGet();
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Estimates when the queue will have room again, from the mean inference
+   * time of the model.
+   */
+  private long retryMillis() {
+    var nanos = metrics.meanInferenceNanos() * queueSize / threads;
+    return Math.max(1, TimeUnit.NANOSECONDS.toMillis(nanos));
+  }
+
+  private void start(InferenceCall call) {
+    queued.decrementAndGet();
+    metrics.started(System.nanoTime() - call.enqueuedAt());
+  }
+
+  /**
+   * Shares the inference of an input with the identical requests arriving
+   * while it runs, so that a burst of them runs the model once.
+   */
+  private Single<Object> sharedInfer(Object input) {
+    if (input == null) {
+      return timedInfer(null);
+    }
+    return Single.defer(() -> {
+      var shared = SingleSubject.create();
+      var existing = running.putIfAbsent(input, shared);
+      if (existing != null) {
+        metrics.deduplicated();
+        return existing;
+      }
+      timedInfer(input)
+        .doOnTerminate(() -> running.remove(input, shared))
+        .subscribe(shared);
+      return shared;
+    });
+  }
+
+  private Single<Object> timedInfer(Object input) {
+    return Single.defer(() -> {
+      var start = System.nanoTime();
+      return infer(input).doOnSuccess(__ ->
+        metrics.inferred(System.nanoTime() - start)
+      );
+    });
+  }
+
+  private void complete(InferenceCall call, Object output) {
+    if (!pending.remove(call)) {
+      // Already failed when the handler was closed
       return;
     }
-    delegate.handle(message);
+    metrics.finished();
+    if (cache != null) {
+      synchronized (cache) {
+        // The output may come from the model swapped out meanwhile
+        if (call.generation() == generation.get()) {
+          cache.put(call.input(), output);
+        }
+      }
+    }
+    reply(call.message(), output, call.receivedAt());
+  }
+
+  private void complete(InferenceCall call, Throwable error) {
+    if (!pending.remove(call)) {
+      return;
+    }
+    metrics.finished();
+    var code = InferenceCodecs.failureCode(error);
+    fail(call.message(), code, error.getMessage());
+  }
+
+  private void reply(Message<Object> message, Object output, long receivedAt) {
+    var start = System.nanoTime();
+    InferenceCodecs.reply(message, output);
+    var end = System.nanoTime();
+    metrics.replied(end - start, end - receivedAt);
+  }
+
+  private void fail(Message<Object> message, int code, String reason) {
+    metrics.failed(code);
+    message.fail(code, reason);
+  }
+
+  @Override
+  public Single<Object> infer(Object input) {
+    return Single.defer(() -> {
+      var current = acquireDelegate();
+      if (current == null) {
+        return Single.error(
+          new ReplyException(
+            ReplyFailure.RECIPIENT_FAILURE,
+            503,
+            "Model is not ready"
+          )
+        );
+      }
+      return current.handler.infer(input).doFinally(current::release);
+    });
+  }
+
+  private Delegate acquireDelegate() {
+    while (true) {
+      var current = delegate.get();
+      // A delegate swapped out meanwhile is retried with its successor
+      if (current == null || current.acquire()) {
+        return current;
+      }
+    }
   }
 
   public InferenceHandler getDelegate() {
-    return delegate;
+    var current = delegate.get();
+    return current == null ? null : current.handler;
   }
 
   public void setDelegate(InferenceHandler handle) {
-    this.delegate = handle;
+    delegate.set(new Delegate(handle));
+  }
+
+  /**
+   * Sends the next inferences to the given model, or fails them with a 503
+   * status when it is {@code null}. Cached results of the previous model are
+   * dropped.
+   *
+   * @return the previous model, once the inferences running on it are done
+   */
+  public Maybe<InferenceHandler> swapDelegate(InferenceHandler handle) {
+    var previous = delegate.getAndSet(
+      handle == null ? null : new Delegate(handle)
+    );
+    if (cache != null) {
+      synchronized (cache) {
+        generation.incrementAndGet();
+        cache.clear();
+      }
+    }
+    // Later requests run on the new model rather than join the previous one
+    running.clear();
+    if (previous == null) {
+      return Maybe.empty();
+    }
+    LOGGER.debug("Draining previous model of {}", address);
+    return previous.retire().andThen(Maybe.just(previous.handler));
+  }
+
+  public boolean isRemote() {
+    return isRemote;
+  }
+
+  public ModelMetrics.Snapshot metrics() {
+    var handler = getDelegate();
+    return metrics.snapshot(
+      cache == null ? null : cache.stats(),
+      handler == null ? null : handler.circuitStats()
+    );
   }
 
   public void close() {
     if (!consumer.isDisposed()) {
       LOGGER.debug("Stopping DelegatingInferenceHandler: {}", address);
       consumer.dispose();
+      // Calls still queued would never run once the worker pool is closed
+      var stopped = new ReplyException(
+        ReplyFailure.RECIPIENT_FAILURE,
+        503,
+        "Model is stopped"
+      );
+      pending.forEach(call -> complete(call, stopped));
+      if (workerExecutor != null) {
+        workerExecutor.close().subscribe();
+      }
+      LOGGER.debug("Metrics of {}: {}", address, metrics());
+      if (cache != null) {
+        cache.clear();
+      }
       LOGGER.debug("DelegatingInferenceHandler handler {} stopped", address);
     }
   }
 
   @Override
-  public int key() {
-    return this.hashCode();
+  public String key() {
+    return address;
+  }
+
+  /**
+   * A model served at the address, counting the inferences running on it so
+   * that it can be drained once swapped out.
+   */
+  private static final class Delegate {
+
+    private final InferenceHandler handler;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final CompletableSubject drained = CompletableSubject.create();
+    private volatile boolean retired;
+
+    private Delegate(InferenceHandler handler) {
+      this.handler = handler;
+    }
+
+    private boolean acquire() {
+      inFlight.incrementAndGet();
+      if (retired) {
+        release();
+        return false;
+      }
+      return true;
+    }
+
+    private void release() {
+      if (inFlight.decrementAndGet() == 0 && retired) {
+        drained.onComplete();
+      }
+    }
+
+    private Completable retire() {
+      retired = true;
+      if (inFlight.get() == 0) {
+        drained.onComplete();
+      }
+      return drained;
+    }
   }
 }
@@ -0,0 +1,91 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.inference.service.handler;
+
+import io.gravitee.inference.service.handler.config.BatchConfig;
+import io.vertx.rxjava3.core.Vertx;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Gathers the calls arriving at an inference address into batches of at most
+ * {@link BatchConfig#maxSize()} calls, handed over when full or
+ * {@link BatchConfig#maxWaitMicros()} after their first call, rounded up to
+ * the millisecond.
+ * <p>
+ * No thread waits for a batch to fill, a timer is set instead: the batcher
+ * must be called on a single Vert.x context, the event loop of the address.
+ *
+ * @author GraviteeSource Team
+ */
+class InferenceBatcher<T> {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(
+    InferenceBatcher.class
+  );
+
+  private final Vertx vertx;
+  private final BatchConfig config;
+  private final Consumer<List<T>> batchHandler;
+
+  private List<T> pending = new ArrayList<>();
+  private long timer = -1;
+
+  InferenceBatcher(
+    Vertx vertx,
+    BatchConfig config,
+    Consumer<List<T>> batchHandler
+  ) {
+    this.vertx = vertx;
+    this.config = config;
+    this.batchHandler = batchHandler;
+  }
+
+  void offer(T item) {
+    pending.add(item);
+    if (pending.size() >= config.maxSize()) {
+      flush();
+    } else if (timer < 0) {
+      var delay = Math.max(1, (config.maxWaitMicros() + 999) / 1000);
+      timer = vertx.setTimer(delay, __ -> {
+        timer = -1;
+        flush();
+      });
+    }
+  }
+
+  private void flush() {
+    if (timer >= 0) {
+      vertx.cancelTimer(timer);
+      timer = -1;
+    }
+    var batch = pending;
+    pending = new ArrayList<>();
+    if (batch.isEmpty()) {
+      return;
+    }
+    try {
+      LOGGER.debug("Handling batch of {} call(s)", batch.size());
+      batchHandler.accept(batch);
+    } catch (RuntimeException e) {
+      // Later batches must still be handled
+      LOGGER.error("Failed to handle inference batch", e);
+    }
+  }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.inference.service.handler;
+
+import io.vertx.rxjava3.core.eventbus.Message;
+
+/**
+ * An INFER message accepted by a {@link DelegatingInferenceHandler}, along with
+ * its decoded input, the {@link System#nanoTime()} at which it was received
+ * and queued for the model, and the number of times the model of the address
+ * had been swapped when it was accepted.
+ *
+ * @author GraviteeSource Team
+ */
+record InferenceCall(
+  Message<Object> message,
+  Object input,
+  long receivedAt,
+  long enqueuedAt,
+  long generation
+) {}
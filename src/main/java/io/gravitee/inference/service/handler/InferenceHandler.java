@@ -15,16 +15,55 @@
  */
 package io.gravitee.inference.service.handler;
 
-import io.vertx.core.Handler;
-import io.vertx.core.buffer.Buffer;
-import io.vertx.rxjava3.core.eventbus.Message;
+import io.gravitee.inference.service.metrics.CircuitStats;
+import io.reactivex.rxjava3.core.Completable;
+import io.reactivex.rxjava3.core.Single;
 
-public interface InferenceHandler extends Handler<Message<Buffer>> {
+public interface InferenceHandler {
   default void loadModel() {
     throw new UnsupportedOperationException("Unsupported operation");
   }
 
+  /**
+   * Runs synthetic inferences once the model is loaded, so that the first
+   * requests do not pay for its initialisation. Warm-up failures are logged
+   * and do not prevent the model from serving.
+   */
+  default Completable warmUp() {
+    return Completable.complete();
+  }
+
+  /**
+   * Runs the model on the input of an INFER request. A list input is a batch
+   * INFER and emits the list of outputs in the same order.
+   * <p>
+   * Failures carrying a status code are
+   * {@link io.vertx.core.eventbus.ReplyException}s.
+   */
+  Single<Object> infer(Object input);
+
+  /**
+   * @return the memory taken by the loaded model in bytes, or {@code 0} when
+   * it is negligible or unknown, in which case the model is never unloaded
+   * while in use
+   */
+  default long memoryBytes() {
+    return 0;
+  }
+
+  /**
+   * @return the state of the circuit breaker guarding the calls of a remote
+   * model, or {@code null} when it has none
+   */
+  default CircuitStats circuitStats() {
+    return null;
+  }
+
   void close();
 
-  int key();
+  /**
+   * @return the key under which the model is shared, equal for handlers that
+   * load the same model
+   */
+  String key();
 }
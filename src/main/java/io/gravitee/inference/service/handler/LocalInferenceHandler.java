@@ -18,25 +18,60 @@ package io.gravitee.inference.service.handler;
 import static java.util.Objects.requireNonNull;
 
 import io.gravitee.inference.api.Constants;
-import io.gravitee.inference.api.service.InferenceRequest;
 import io.gravitee.inference.api.utils.ConfigWrapper;
 import io.gravitee.inference.onnx.OnnxInference;
+import io.gravitee.inference.service.handler.config.QuantizationConfig;
+import io.gravitee.inference.service.handler.config.WarmupConfig;
+import io.gravitee.inference.service.handler.config.WorkerConfig;
 import io.gravitee.inference.service.model.LocalModelFactory;
-import io.vertx.core.buffer.Buffer;
-import io.vertx.core.json.Json;
-import io.vertx.rxjava3.core.eventbus.Message;
+import io.gravitee.inference.service.model.QuantizationReport;
+import io.gravitee.inference.service.repository.ModelKeys;
+import io.reactivex.rxjava3.core.Completable;
+import io.reactivex.rxjava3.core.Single;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
+ * Runs an ONNX model, loaded {@link WorkerConfig#replicas()} times so that as
+ * many requests can run in parallel, each on its own session.
+ *
  * @author Rémi SULTAN (remi.sultan at graviteesource.com)
  * @author GraviteeSource Team
  */
 public class LocalInferenceHandler implements InferenceHandler {
 
-  private final int key;
+  private static final Logger LOGGER = LoggerFactory.getLogger(
+    LocalInferenceHandler.class
+  );
+  // Tokens added around the input by BERT tokenizers
+  private static final int SPECIAL_TOKENS = 2;
+
+  private static final List<String> PATH_KEYS = List.of(
+    Constants.MODEL_PATH,
+    Constants.TOKENIZER_PATH,
+    Constants.CONFIG_JSON_PATH
+  );
+
+  private final String key;
+  private final AtomicBoolean warmedUp = new AtomicBoolean();
+  private final AtomicBoolean quantizationMeasured = new AtomicBoolean();
   private final LocalModelFactory localModelFactory;
 
-  private OnnxInference<?, ?, ?> model;
+  private volatile List<OnnxInference<?, ?, ?>> models = List.of();
+  // Replicas not running a request, handed out in turn
+  private volatile BlockingQueue<OnnxInference<?, ?, ?>> replicas;
   private final Map<String, Object> payload;
 
   public LocalInferenceHandler(
@@ -45,44 +80,190 @@ public class LocalInferenceHandler implements InferenceHandler {
   ) {
     this.payload = payload;
     this.localModelFactory = modelFactory;
-    this.key = payload.hashCode();
+    this.key = ModelKeys.sha256(
+      ModelKeys.withFileDigests(payload, PATH_KEYS),
+      ModelKeyExclusions.KEYS
+    );
   }
 
+  /**
+   * Runs synchronously on the subscribing thread, which is a worker thread of
+   * the {@link DelegatingInferenceHandler}.
+   */
   @Override
-  public void handle(Message<Buffer> message) {
-    try {
-      var request = Json.decodeValue(message.body(), InferenceRequest.class);
-      switch (request.action()) {
-        case INFER -> {
-          var config = new ConfigWrapper(request.payload());
-          var output = requireNonNull(model, "Model isn't loaded").infer(
-            config.get(Constants.INPUT)
-          );
-          message.reply(Json.encodeToBuffer(output));
-        }
-        case null, default -> message.fail(
-          405,
-          "Unsupported action: " + request.action()
-        );
+  public Single<Object> infer(Object input) {
+    return Single.fromCallable(() -> inferInput(input));
+  }
+
+  /**
+   * Runs synchronously on the subscribing thread, which is the worker thread
+   * that loaded the model. Every replica runs the whole warm-up.
+   */
+  @Override
+  public Completable warmUp() {
+    var config = WarmupConfig.fromPayload(payload);
+    if (!config.isEnabled() || !warmedUp.compareAndSet(false, true)) {
+      return Completable.complete();
+    }
+    return Completable.fromAction(() -> {
+      var start = System.nanoTime();
+      var inputs = config.inputs(maxSequenceLength() - SPECIAL_TOKENS);
+      for (var replica : models) {
+        inputs.forEach(input -> infer(replica, input));
       }
-    } catch (Exception e) {
-      message.fail(400, e.getMessage());
+      LOGGER.debug(
+        "Model warmed up with {} inference(s) in {} ms",
+        inputs.size() * models.size(),
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+      );
+    })
+      .doOnError(e -> LOGGER.warn("Model warm-up failed", e))
+      .onErrorComplete();
+  }
+
+  private int maxSequenceLength() {
+    return payload.get(Constants.MAX_SEQUENCE_LENGTH) instanceof Number length
+      ? length.intValue()
+      : Constants.MAX_SEQUENCE_LENGTH_DEFAULT_VALUE;
+  }
+
+  /**
+   * A list input is a batch INFER: every element is inferred and the outputs
+   * are returned in the same order.
+   */
+  private Object inferInput(Object input) {
+    if (input instanceof List<?> inputs) {
+      return inputs.stream().map(this::inferOne).toList();
+    }
+    return inferOne(input);
+  }
+
+  private Object inferOne(Object input) {
+    var queue = requireNonNull(replicas, "Model isn't loaded");
+    var replica = acquire(queue);
+    try {
+      return infer(replica, input);
+    } finally {
+      queue.offer(replica);
     }
   }
 
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  private static Object infer(OnnxInference<?, ?, ?> replica, Object input) {
+    return ((OnnxInference) replica).infer(input);
+  }
+
+  private static OnnxInference<?, ?, ?> acquire(
+    BlockingQueue<OnnxInference<?, ?, ?>> queue
+  ) {
+    try {
+      return queue.take();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted waiting for the model", e);
+    }
+  }
+
+  /**
+   * The model is warmed up again once loaded again.
+   */
   public void close() {
-    if (model != null) {
-      model.close();
+    warmedUp.set(false);
+    replicas = null;
+    models.forEach(OnnxInference::close);
+    models = List.of();
+  }
+
+  /**
+   * Estimated as the size of the model file times the number of replicas.
+   */
+  @Override
+  public long memoryBytes() {
+    if (!(payload.get(Constants.MODEL_PATH) instanceof String path)) {
+      return 0;
+    }
+    try {
+      return (
+        Files.size(Path.of(path)) * WorkerConfig.fromPayload(payload).replicas()
+      );
+    } catch (IOException e) {
+      return 0;
     }
   }
 
   @Override
-  public int key() {
+  public String key() {
     return key;
   }
 
   @Override
   public void loadModel() {
-    model = localModelFactory.build(new ConfigWrapper(payload));
+    var count = WorkerConfig.fromPayload(payload).replicas();
+    var config = new ConfigWrapper(payload);
+    var loaded = new ArrayList<OnnxInference<?, ?, ?>>(count);
+    try {
+      for (int i = 0; i < count; i++) {
+        loaded.add(localModelFactory.build(config));
+      }
+    } catch (RuntimeException e) {
+      loaded.forEach(OnnxInference::close);
+      throw e;
+    }
+    LOGGER.debug("Loaded {} replica(s) of the model", count);
+    models = List.copyOf(loaded);
+    replicas = new ArrayBlockingQueue<>(count, false, models);
+    if (quantizationMeasured.compareAndSet(false, true)) {
+      measureQuantization();
+    }
+  }
+
+  /**
+   * Compares the quantized model with the original one on the samples of the
+   * payload, loading the original model for the time of the comparison. The
+   * model is only compared the first time it loads, as it does not change
+   * when unloaded and loaded again.
+   */
+  private void measureQuantization() {
+    var quantization = QuantizationConfig.fromPayload(payload, null);
+    if (
+      !quantization.isMeasured() ||
+      !(payload.get(
+          QuantizationConfig.QUANTIZATION_REFERENCE_PATH
+        ) instanceof String reference)
+    ) {
+      return;
+    }
+    var originalPayload = new HashMap<>(payload);
+    originalPayload.put(Constants.MODEL_PATH, reference);
+    OnnxInference<?, ?, ?> original = null;
+    try {
+      original = localModelFactory.build(new ConfigWrapper(originalPayload));
+      var samples = quantization.samples();
+      var report = QuantizationReport.compare(
+        inferAll(original, samples),
+        inferAll(models.getFirst(), samples)
+      );
+      LOGGER.info(
+        "Quantized model {} compared with its original on {} sample(s): " +
+        "mean similarity {}, min similarity {}",
+        payload.get(Constants.MODEL_PATH),
+        report.samples(),
+        String.format(Locale.ROOT, "%.4f", report.meanSimilarity()),
+        String.format(Locale.ROOT, "%.4f", report.minSimilarity())
+      );
+    } catch (RuntimeException e) {
+      LOGGER.warn("Failed to compare the quantized model with its original", e);
+    } finally {
+      if (original != null) {
+        original.close();
+      }
+    }
+  }
+
+  private static List<Object> inferAll(
+    OnnxInference<?, ?, ?> model,
+    List<String> inputs
+  ) {
+    return inputs.stream().map(input -> infer(model, input)).toList();
   }
 }
@@ -16,17 +16,26 @@
 package io.gravitee.inference.service.handler;
 
 import static io.gravitee.inference.api.Constants.*;
+import static io.gravitee.inference.api.service.InferenceAction.START;
 import static io.gravitee.inference.api.service.InferenceFormat.HTTP;
 import static io.gravitee.inference.api.service.InferenceFormat.OPENAI;
 
 import io.gravitee.inference.api.service.InferenceFormat;
 import io.gravitee.inference.api.service.InferenceRequest;
 import io.gravitee.inference.api.utils.ConfigWrapper;
+import io.gravitee.inference.service.handler.config.BatchConfig;
+import io.gravitee.inference.service.handler.config.CacheConfig;
+import io.gravitee.inference.service.handler.config.WorkerConfig;
+import io.gravitee.inference.service.metrics.ModelMetrics;
 import io.gravitee.inference.service.provider.ModelProviderRegistry;
 import io.gravitee.inference.service.repository.HandlerRepository;
+import io.reactivex.rxjava3.core.Maybe;
+import io.reactivex.rxjava3.core.Single;
 import io.vertx.core.Handler;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonObject;
+import io.vertx.rxjava3.core.RxHelper;
 import io.vertx.rxjava3.core.Vertx;
 import io.vertx.rxjava3.core.eventbus.Message;
 import java.util.*;
@@ -44,7 +53,10 @@ public class ModelHandler implements Handler<Message<Buffer>> {
 
   private final Vertx vertx;
   private final HandlerRepository repository;
-  private final Map<String, InferenceHandler> inferenceHandlers =
+  private static final String ACTION = "action";
+  private static final String PAYLOAD = "payload";
+
+  private final Map<String, DelegatingInferenceHandler> inferenceHandlers =
     new ConcurrentHashMap<>();
   private final ModelProviderRegistry modelProviderRegistry;
 
@@ -61,10 +73,13 @@ public class ModelHandler implements Handler<Message<Buffer>> {
   @Override
   public void handle(Message<Buffer> message) {
     try {
-      var inferenceRequest = Json.decodeValue(
-        message.body(),
-        InferenceRequest.class
-      );
+      var json = message.body().toJsonObject();
+      var adminAction = AdminAction.from(json.getString(ACTION));
+      if (adminAction.isPresent()) {
+        handleAdmin(message, adminAction.get(), json.getJsonObject(PAYLOAD));
+        return;
+      }
+      var inferenceRequest = json.mapTo(InferenceRequest.class);
       switch (inferenceRequest.action()) {
         case START -> handleStart(message, inferenceRequest);
         case STOP -> handleStop(message, inferenceRequest);
@@ -92,32 +107,40 @@ public class ModelHandler implements Handler<Message<Buffer>> {
 
     LOGGER.debug("Inference Format: {}", inferenceFormat);
 
-    boolean isRemote =
-      OPENAI.equals(inferenceFormat) || HTTP.equals(inferenceFormat);
     var inferenceHandler = new DelegatingInferenceHandler(
       address,
       vertx,
-      isRemote
+      isRemote(inferenceFormat),
+      BatchConfig.fromPayload(inferenceRequest.payload()),
+      CacheConfig.fromPayload(inferenceRequest.payload()),
+      WorkerConfig.fromPayload(inferenceRequest.payload())
     );
     inferenceHandlers.put(address, inferenceHandler);
 
-    modelProviderRegistry
-      .getProvider(inferenceFormat)
-      .provide(inferenceRequest, repository)
-      .subscribe(
-        handle -> {
-          inferenceHandler.setDelegate(handle);
-          message.reply(Buffer.buffer(address));
-        },
-        error -> {
-          LOGGER.error("Failed to start inference handler", error);
-          inferenceHandlers.remove(address);
+    provide(inferenceFormat, inferenceRequest).subscribe(
+      handle -> {
+        // The address may have been stopped while the model loaded
+        if (inferenceHandlers.get(address) != inferenceHandler) {
+          release(Maybe.just(handle));
           message.fail(
-            500,
-            "Failed to start inference handler: " + error.getMessage()
+            404,
+            "Could not find inference handler for address: " + address
           );
+          return;
         }
-      );
+        inferenceHandler.setDelegate(handle);
+        message.reply(Buffer.buffer(address));
+      },
+      error -> {
+        LOGGER.error("Failed to start inference handler", error);
+        inferenceHandlers.remove(address);
+        inferenceHandler.close();
+        message.fail(
+          500,
+          "Failed to start inference handler: " + error.getMessage()
+        );
+      }
+    );
   }
 
   private void handleStop(
@@ -129,7 +152,8 @@ public class ModelHandler implements Handler<Message<Buffer>> {
 
     if (inferenceHandlers.containsKey(address)) {
       var inferenceHandler = inferenceHandlers.remove(address);
-      repository.remove(inferenceHandler);
+      inferenceHandler.close();
+      release(inferenceHandler.swapDelegate(null));
       message.reply(Buffer.buffer(address));
     } else {
       throw new IllegalArgumentException(
@@ -138,7 +162,121 @@ public class ModelHandler implements Handler<Message<Buffer>> {
     }
   }
 
+  private void handleAdmin(
+    Message<Buffer> message,
+    AdminAction action,
+    JsonObject payload
+  ) {
+    switch (action) {
+      case STATS -> handleStats(message, payload);
+      case SWAP -> handleSwap(message, payload);
+    }
+  }
+
+  private void handleSwap(Message<Buffer> message, JsonObject payload) {
+    var address = payload == null ? null : payload.getString(MODEL_ADDRESS_KEY);
+    var inferenceHandler = address == null
+      ? null
+      : inferenceHandlers.get(address);
+    if (inferenceHandler == null) {
+      message.fail(
+        404,
+        "Could not find inference handler for address: " + address
+      );
+      return;
+    }
+    var startPayload = payload.copy();
+    startPayload.remove(MODEL_ADDRESS_KEY);
+    var inferenceRequest = new InferenceRequest(START, startPayload.getMap());
+    var inferenceFormat = InferenceFormat.valueOf(
+      startPayload.getString(INFERENCE_FORMAT)
+    );
+    if (isRemote(inferenceFormat) != inferenceHandler.isRemote()) {
+      message.fail(
+        400,
+        "Cannot swap between local and remote models at address: " + address
+      );
+      return;
+    }
+
+    provide(inferenceFormat, inferenceRequest).subscribe(
+      handle -> {
+        // The address may have been stopped while the new model loaded
+        if (inferenceHandlers.get(address) != inferenceHandler) {
+          release(Maybe.just(handle));
+          message.fail(
+            404,
+            "Could not find inference handler for address: " + address
+          );
+          return;
+        }
+        LOGGER.debug("Swapping model at {}", address);
+        release(inferenceHandler.swapDelegate(handle));
+        message.reply(Buffer.buffer(address));
+      },
+      error -> {
+        LOGGER.error("Failed to swap model at {}", address, error);
+        message.fail(500, "Failed to swap model: " + error.getMessage());
+      }
+    );
+  }
+
+  /**
+   * Loads and warms up the model of a START request.
+   */
+  private Single<InferenceHandler> provide(
+    InferenceFormat inferenceFormat,
+    InferenceRequest inferenceRequest
+  ) {
+    return modelProviderRegistry
+      .getProvider(inferenceFormat)
+      .provide(inferenceRequest, repository)
+      .flatMap(handle -> handle.warmUp().toSingleDefault(handle));
+  }
+
+  /**
+   * Releases a model swapped out of its address once drained, off the event
+   * loop as it may be closed.
+   */
+  private void release(Maybe<InferenceHandler> previous) {
+    previous
+      .observeOn(RxHelper.blockingScheduler(vertx))
+      .subscribe(repository::remove, error ->
+        LOGGER.error("Failed to release model", error)
+      );
+  }
+
+  private static boolean isRemote(InferenceFormat inferenceFormat) {
+    return OPENAI.equals(inferenceFormat) || HTTP.equals(inferenceFormat);
+  }
+
+  private void handleStats(Message<Buffer> message, JsonObject payload) {
+    var address = payload == null ? null : payload.getString(MODEL_ADDRESS_KEY);
+    if (address == null) {
+      message.reply(Json.encodeToBuffer(Map.of("models", metrics())));
+      return;
+    }
+    var inferenceHandler = inferenceHandlers.get(address);
+    if (inferenceHandler == null) {
+      message.fail(
+        404,
+        "Could not find inference handler for address: " + address
+      );
+      return;
+    }
+    message.reply(Json.encodeToBuffer(inferenceHandler.metrics()));
+  }
+
+  public List<ModelMetrics.Snapshot> metrics() {
+    return inferenceHandlers
+      .values()
+      .stream()
+      .map(DelegatingInferenceHandler::metrics)
+      .toList();
+  }
+
   public void close() {
     inferenceHandlers.forEach((__, handler) -> handler.close());
+    modelProviderRegistry.close();
   }
 }
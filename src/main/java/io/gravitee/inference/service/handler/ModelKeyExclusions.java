@@ -0,0 +1,53 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.inference.service.handler;
+
+import io.gravitee.inference.service.handler.config.BatchConfig;
+import io.gravitee.inference.service.handler.config.CacheConfig;
+import io.gravitee.inference.service.handler.config.QuantizationConfig;
+import io.gravitee.inference.service.handler.config.WarmupConfig;
+import io.gravitee.inference.service.handler.config.WorkerConfig;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Keys of the START payload that do not change the loaded model, local or
+ * remote, left out of its key so that APIs tuning them differently still
+ * share it.
+ *
+ * @author GraviteeSource Team
+ */
+final class ModelKeyExclusions {
+
+  static final List<String> KEYS = Stream.of(
+    List.of(
+      BatchConfig.BATCH_MAX_SIZE,
+      BatchConfig.BATCH_MAX_WAIT_MICROS,
+      CacheConfig.CACHE_MAX_ENTRIES,
+      CacheConfig.CACHE_MAX_BYTES,
+      CacheConfig.CACHE_TTL_MILLIS,
+      WorkerConfig.WORKER_THREADS,
+      WorkerConfig.WORKER_QUEUE_SIZE,
+      QuantizationConfig.QUANTIZATION_SAMPLES,
+      QuantizationConfig.QUANTIZATION_REFERENCE_PATH
+    ),
+    WarmupConfig.KEYS
+  )
+    .flatMap(List::stream)
+    .toList();
+
+  private ModelKeyExclusions() {}
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.inference.service.handler;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import io.gravitee.inference.service.handler.config.RateLimitConfig;
+import io.reactivex.rxjava3.core.Completable;
+import io.reactivex.rxjava3.core.Scheduler;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.eventbus.ReplyFailure;
+import java.util.Collection;
+import java.util.function.LongSupplier;
+
+/**
+ * Rate limiter of the calls of a remote model to its upstream API, following
+ * its {@link RateLimitConfig}.
+ * <p>
+ * Requests and estimated tokens are taken from two token buckets refilled at
+ * the quota rate. A call beyond the quota reserves its share anyway and waits
+ * until the buckets would have held it, so that calls queue in order and a
+ * burst is spread over time. Buckets hold one second of quota, as upstream
+ * quotas are usually enforced over shorter periods than a minute.
+ * <p>
+ * Calls are also held while the upstream asked to wait, through a
+ * {@code Retry-After} or rate limit header, including the calls already
+ * waiting when it asks. A call that would wait longer than the maximum queue
+ * time fails right away with a {@code 429} status.
+ * <p>
+ * Every attempt of a call is charged, retries and hedges included, as each
+ * one counts against the upstream quota.
+ *
+ * @author GraviteeSource Team
+ */
+class RateLimiter {
+
+  static final int REJECTED_STATUS = 429;
+
+  // Rough count of tokens per character of English text
+  private static final int CHARS_PER_TOKEN = 4;
+
+  private final RateLimitConfig config;
+  private final Scheduler scheduler;
+  private final LongSupplier nanoClock;
+  private final Bucket requests;
+  private final Bucket tokens;
+  private long pausedUntil;
+
+  RateLimiter(RateLimitConfig config, Scheduler scheduler) {
+    this(config, scheduler, System::nanoTime);
+  }
+
+  RateLimiter(
+    RateLimitConfig config,
+    Scheduler scheduler,
+    LongSupplier nanoClock
+  ) {
+    this.config = config;
+    this.scheduler = scheduler;
+    this.nanoClock = nanoClock;
+    var now = nanoClock.getAsLong();
+    this.requests = config.requestsPerMinute() > 0
+      ? new Bucket(config.requestsPerMinute(), now)
+      : null;
+    this.tokens = config.tokensPerMinute() > 0
+      ? new Bucket(config.tokensPerMinute(), now)
+      : null;
+    this.pausedUntil = now;
+  }
+
+  /**
+   * @return completing once the quotas allow an attempt with the inputs, or
+   * failing with a {@code 429} {@link ReplyException} when it would wait too
+   * long. Each subscription is charged.
+   */
+  Completable acquire(Collection<String> inputs) {
+    return Completable.defer(() -> {
+      var wait = reserve(estimateTokens(inputs));
+      if (wait < 0) {
+        return Completable.error(
+          new ReplyException(
+            ReplyFailure.RECIPIENT_FAILURE,
+            REJECTED_STATUS,
+            "Rate limit exceeded, the call would wait more than " +
+            config.maxQueueMillis() +
+            " ms"
+          )
+        );
+      }
+      return await(wait);
+    });
+  }
+
+  /**
+   * Waits, then waits again as long as the upstream asked to in the meantime.
+   */
+  private Completable await(long wait) {
+    if (wait <= 0) {
+      return Completable.complete();
+    }
+    return Completable.timer(wait, NANOSECONDS, scheduler).andThen(
+      Completable.defer(() -> await(pausedNanos()))
+    );
+  }
+
+  private synchronized long pausedNanos() {
+    return pausedUntil - nanoClock.getAsLong();
+  }
+
+  /**
+   * Holds the next calls until the upstream accepts them again.
+   */
+  synchronized void pause(long millis) {
+    pausedUntil = Math.max(
+      pausedUntil,
+      nanoClock.getAsLong() + MILLISECONDS.toNanos(millis)
+    );
+  }
+
+  /**
+   * @return how long the call has to wait in ns, or {@code -1} when it would
+   * wait longer than the maximum queue time
+   */
+  synchronized long reserve(long cost) {
+    var now = nanoClock.getAsLong();
+    var wait = Math.max(0, pausedUntil - now);
+    if (requests != null) {
+      wait = Math.max(wait, requests.waitNanos(1, now));
+    }
+    if (tokens != null) {
+      wait = Math.max(wait, tokens.waitNanos(cost, now));
+    }
+    if (wait > MILLISECONDS.toNanos(config.maxQueueMillis())) {
+      return -1;
+    }
+    if (requests != null) {
+      requests.take(1);
+    }
+    if (tokens != null) {
+      tokens.take(cost);
+    }
+    return wait;
+  }
+
+  static long estimateTokens(Collection<String> inputs) {
+    long tokens = 0;
+    for (var input : inputs) {
+      tokens += Math.max(
+        1,
+        (input.length() + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN
+      );
+    }
+    return tokens;
+  }
+
+  /**
+   * A token bucket whose level goes negative when calls reserve more than it
+   * holds.
+   */
+  private static final class Bucket {
+
+    private final double capacity;
+    private final double perNano;
+    private double level;
+    private long refilledAt;
+
+    Bucket(long perMinute, long now) {
+      this.perNano = (double) perMinute / MINUTES.toNanos(1);
+      this.capacity = Math.max(1d, perMinute / 60d);
+      this.level = capacity;
+      this.refilledAt = now;
+    }
+
+    /**
+     * A cost beyond the capacity waits for a full bucket.
+     */
+    long waitNanos(long cost, long now) {
+      level = Math.min(capacity, level + (now - refilledAt) * perNano);
+      refilledAt = now;
+      var missing = Math.min(cost, capacity) - level;
+      return missing <= 0 ? 0 : (long) Math.ceil(missing / perNano);
+    }
+
+    void take(long cost) {
+      level -= cost;
+    }
+  }
+}
@@ -15,57 +15,314 @@
  */
 package io.gravitee.inference.service.handler;
 
-import io.gravitee.inference.api.Constants;
-import io.gravitee.inference.api.service.InferenceRequest;
+import io.gravitee.inference.api.embedding.EmbeddingTokenCount;
 import io.gravitee.inference.api.utils.ConfigWrapper;
 import io.gravitee.inference.rest.RestInference;
+import io.gravitee.inference.service.cache.EmbeddingStore;
+import io.gravitee.inference.service.handler.config.CircuitBreakerConfig;
+import io.gravitee.inference.service.handler.config.EmbeddingStoreConfig;
+import io.gravitee.inference.service.handler.config.HttpClientConfig;
+import io.gravitee.inference.service.handler.config.RateLimitConfig;
+import io.gravitee.inference.service.handler.config.UpstreamConfig;
+import io.gravitee.inference.service.handler.config.WarmupConfig;
+import io.gravitee.inference.service.metrics.CircuitStats;
+import io.gravitee.inference.service.model.OpenAIBatchEmbeddingInference;
 import io.gravitee.inference.service.model.RemoteModelFactory;
+import io.gravitee.inference.service.repository.ModelKeys;
+import io.reactivex.rxjava3.core.Completable;
 import io.reactivex.rxjava3.core.Maybe;
-import io.vertx.core.buffer.Buffer;
-import io.vertx.core.json.Json;
-import io.vertx.rxjava3.core.eventbus.Message;
+import io.reactivex.rxjava3.core.Observable;
+import io.reactivex.rxjava3.core.Scheduler;
+import io.reactivex.rxjava3.core.Single;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+import io.vertx.rxjava3.core.RxHelper;
+import io.vertx.rxjava3.core.Vertx;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class RemoteInferenceHandler implements InferenceHandler {
 
+  private static final Logger LOGGER = LoggerFactory.getLogger(
+    RemoteInferenceHandler.class
+  );
+
+  /**
+   * Keys that do not change the embeddings, left out of the store directory
+   * name so that rotating credentials or tuning the calls keeps the stored
+   * embeddings.
+   */
+  private static final List<String> STORE_EXCLUDED_KEYS = Stream.of(
+    List.of(
+      RemoteModelFactory.OPENAI_API_KEY,
+      RemoteModelFactory.OPENAI_ORGANIZATION_ID,
+      RemoteModelFactory.OPENAI_PROJECT_ID,
+      RemoteModelFactory.HTTP_HEADERS
+    ),
+    EmbeddingStoreConfig.KEYS,
+    WarmupConfig.KEYS,
+    HttpClientConfig.KEYS,
+    UpstreamConfig.KEYS,
+    CircuitBreakerConfig.KEYS,
+    RateLimitConfig.KEYS
+  )
+    .flatMap(List::stream)
+    .toList();
+
   private final RemoteModelFactory modelFactory;
   private final Map<String, Object> payload;
-  private final int key;
+  private final Path storeRoot;
+  private final Scheduler storeScheduler;
+  private final String key;
+  private final AtomicBoolean warmedUp = new AtomicBoolean();
+  private final UpstreamCalls upstream;
+  private final CircuitBreaker circuit;
+  private final RateLimiter rateLimiter;
 
   private RestInference<?, ?, ?> model;
+  private OpenAIBatchEmbeddingInference batchModel;
+  private EmbeddingStore store;
 
   public RemoteInferenceHandler(
     Map<String, Object> payload,
     RemoteModelFactory modelFactory
+  ) {
+    this(
+      payload,
+      modelFactory,
+      null,
+      Schedulers.computation(),
+      Schedulers.io()
+    );
+  }
+
+  /**
+   * @param storeRoot the directory holding the persistent embedding stores,
+   * or {@code null} to never persist embeddings
+   */
+  public RemoteInferenceHandler(
+    Map<String, Object> payload,
+    RemoteModelFactory modelFactory,
+    Path storeRoot,
+    Vertx vertx
+  ) {
+    this(
+      payload,
+      modelFactory,
+      storeRoot,
+      RxHelper.scheduler(vertx),
+      RxHelper.blockingScheduler(vertx, false)
+    );
+  }
+
+  /**
+   * @param scheduler the scheduler timing the upstream calls
+   * @param storeScheduler the scheduler reading and writing the embedding
+   * store, off the event loop
+   */
+  private RemoteInferenceHandler(
+    Map<String, Object> payload,
+    RemoteModelFactory modelFactory,
+    Path storeRoot,
+    Scheduler scheduler,
+    Scheduler storeScheduler
   ) {
     this.modelFactory = modelFactory;
     this.payload = payload;
-    this.key = payload.hashCode();
+    this.storeRoot = storeRoot;
+    this.storeScheduler = storeScheduler;
+    this.key = ModelKeys.sha256(payload, ModelKeyExclusions.KEYS);
+    this.upstream = new UpstreamCalls(
+      UpstreamConfig.fromPayload(payload),
+      scheduler
+    );
+    this.circuit = new CircuitBreaker(
+      String.valueOf(payload.get(RemoteModelFactory.URI)),
+      CircuitBreakerConfig.fromPayload(payload)
+    );
+    this.rateLimiter = new RateLimiter(
+      RateLimitConfig.fromPayload(payload),
+      scheduler
+    );
   }
 
+  /**
+   * Upstream failures are reported with the status given by
+   * {@link UpstreamCalls}, calls refused by the open circuit breaker with a
+   * {@code 503} status and calls beyond the rate limit with a {@code 429}
+   * status.
+   */
   @Override
-  public void handle(Message<Buffer> message) {
-    try {
-      var request = Json.decodeValue(message.body(), InferenceRequest.class);
-      switch (request.action()) {
-        case INFER -> {
-          var config = new ConfigWrapper(request.payload());
-          model
-            .infer(config.get(Constants.INPUT))
-            .onErrorResumeNext(t -> {
-              message.fail(404, t.getMessage());
-              return Maybe.empty();
-            })
-            .doOnSuccess(o -> message.reply(Json.encodeToBuffer(o)))
-            .subscribe();
+  public Single<Object> infer(Object input) {
+    return inferInput(input)
+      .toSingle()
+      .onErrorResumeNext(t -> Single.error(UpstreamCalls.toReplyException(t)));
+  }
+
+  /**
+   * Calls the remote API with the synthetic inputs one after the other, which
+   * also opens the connection to it. The embeddings are not stored.
+   */
+  @Override
+  public Completable warmUp() {
+    var config = WarmupConfig.fromPayload(payload);
+    if (!config.isEnabled() || !warmedUp.compareAndSet(false, true)) {
+      return Completable.complete();
+    }
+    return Observable.fromIterable(config.inputs(Integer.MAX_VALUE))
+      .concatMapCompletable(input -> callModel(input).ignoreElement())
+      .doOnError(e -> LOGGER.warn("Model warm-up failed", e))
+      .onErrorComplete();
+  }
+
+  /**
+   * A list input is a batch INFER: the outputs are returned in the same order,
+   * with a single upstream call when the format supports it.
+   */
+  private Maybe<Object> inferInput(Object input) {
+    if (input instanceof List<?> inputs) {
+      return inferAll(inputs).toMaybe().cast(Object.class);
+    }
+    return inferOne(input);
+  }
+
+  private Single<List<Object>> inferAll(List<?> inputs) {
+    if (batchModel != null) {
+      return inferBatch(inputs.stream().map(String::valueOf).toList());
+    }
+    return Observable.fromIterable(inputs)
+      .concatMapEager(input -> inferOne(input).toSingle().toObservable())
+      .toList();
+  }
+
+  /**
+   * Sends only the texts missing from the store upstream, in one call.
+   */
+  private Single<List<Object>> inferBatch(List<String> texts) {
+    if (store == null) {
+      var outputs = new ArrayList<Object>(
+        Collections.nCopies(texts.size(), null)
+      );
+      return inferMisses(texts, outputs);
+    }
+    return Single.fromCallable(() -> {
+      var outputs = new ArrayList<Object>(texts.size());
+      for (var text : texts) {
+        outputs.add(store.get(text));
+      }
+      return outputs;
+    })
+      .subscribeOn(storeScheduler)
+      .flatMap(outputs -> inferMisses(texts, outputs));
+  }
+
+  /**
+   * @param outputs the stored outputs of the texts, {@code null} when missing
+   */
+  private Single<List<Object>> inferMisses(
+    List<String> texts,
+    List<Object> outputs
+  ) {
+    var misses = new ArrayList<String>();
+    for (int i = 0; i < texts.size(); i++) {
+      if (outputs.get(i) == null) {
+        misses.add(texts.get(i));
+      }
+    }
+    if (misses.isEmpty()) {
+      return Single.just(outputs);
+    }
+    return callUpstream(misses, () -> batchModel.infer(misses)).map(
+      embeddings -> {
+        for (int i = 0, miss = 0; i < outputs.size(); i++) {
+          if (outputs.get(i) == null) {
+            var embedding = embeddings.get(miss++);
+            remember(texts.get(i), embedding);
+            outputs.set(i, embedding);
+          }
         }
-        case null, default -> message.fail(
-          405,
-          "Unsupported action: " + request.action()
-        );
+        return outputs;
       }
-    } catch (Exception e) {
-      message.fail(400, e.getMessage());
+    );
+  }
+
+  private Maybe<Object> inferOne(Object input) {
+    if (store != null && input instanceof String text) {
+      return Maybe.<Object>fromCallable(() -> store.get(text))
+        .subscribeOn(storeScheduler)
+        .switchIfEmpty(
+          Maybe.defer(() ->
+            callModel(input).doOnSuccess(output -> remember(text, output))
+          )
+        );
+    }
+    return callModel(input);
+  }
+
+  /**
+   * A single input goes through the batch inference too, when the format has
+   * one, so that it uses the shared client of the upstream host.
+   */
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  private Maybe<Object> callModel(Object input) {
+    var inputs = List.of(String.valueOf(input));
+    if (batchModel != null) {
+      return callUpstream(inputs, () -> batchModel.infer(inputs))
+        .map(embeddings -> (Object) embeddings.getFirst())
+        .toMaybe();
+    }
+    var rest = (RestInference) model;
+    return callUpstream(inputs, () ->
+      ((Maybe<Object>) rest.infer(input)).toSingle()
+    ).toMaybe();
+  }
+
+  /**
+   * Every attempt of a call, retries and hedges included, waits for the rate
+   * limit, and the circuit breaker counts the outcome of the call once its
+   * attempts are done. The first attempt is admitted before the call reaches
+   * the circuit breaker, so that waiting for the quota is not timed as a slow
+   * call.
+   */
+  private <T> Single<T> callUpstream(
+    List<String> inputs,
+    Supplier<Single<T>> call
+  ) {
+    return Single.defer(() -> {
+      var firstAdmitted = new AtomicBoolean(true);
+      var admission = Completable.defer(() ->
+        firstAdmitted.getAndSet(false)
+          ? Completable.complete()
+          : rateLimiter.acquire(inputs)
+      );
+      return rateLimiter
+        .acquire(inputs)
+        .andThen(circuit.call(() -> upstream.call(admission, call)));
+    });
+  }
+
+  /**
+   * Persists the embedding in the background, the output being replied
+   * without waiting for it.
+   */
+  private void remember(String text, Object output) {
+    var target = store;
+    if (target != null && output instanceof EmbeddingTokenCount embedding) {
+      storeScheduler.scheduleDirect(() -> {
+        try {
+          target.put(text, embedding);
+        } catch (RuntimeException e) {
+          LOGGER.warn("Failed to persist embedding: {}", e.getMessage());
+        }
+      });
     }
   }
 
@@ -73,14 +330,56 @@ public class RemoteInferenceHandler implements InferenceHandler {
     if (model != null) {
       model.close();
     }
+    if (batchModel != null) {
+      batchModel.close();
+    }
+    if (store != null) {
+      try {
+        store.close();
+      } catch (IOException e) {
+        LOGGER.warn("Failed to close embedding store", e);
+      }
+    }
   }
 
   @Override
-  public int key() {
+  public String key() {
     return key;
   }
 
+  @Override
+  public CircuitStats circuitStats() {
+    return circuit.isEnabled() ? circuit.stats() : null;
+  }
+
   public void loadModel() {
-    model = modelFactory.build(new ConfigWrapper(this.payload));
+    var config = new ConfigWrapper(this.payload);
+    batchModel = modelFactory.buildBatch(config);
+    if (batchModel == null) {
+      model = modelFactory.build(config);
+    } else {
+      batchModel.setThrottleListener(rateLimiter::pause);
+    }
+    store = openStore();
+  }
+
+  private EmbeddingStore openStore() {
+    var storeConfig = EmbeddingStoreConfig.fromPayload(payload);
+    if (storeRoot == null || !storeConfig.isEnabled()) {
+      return null;
+    }
+    var directory = storeRoot.resolve(
+      ModelKeys.sha256(payload, STORE_EXCLUDED_KEYS)
+    );
+    try {
+      return EmbeddingStore.open(directory, storeConfig);
+    } catch (IOException | RuntimeException e) {
+      LOGGER.warn(
+        "Embeddings will not be persisted, failed to open store {}",
+        directory,
+        e
+      );
+      return null;
+    }
   }
 }
@@ -0,0 +1,281 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.inference.service.handler;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import io.gravitee.inference.service.handler.config.UpstreamConfig;
+import io.gravitee.inference.service.metrics.LatencyHistogram;
+import io.gravitee.inference.service.model.UpstreamException;
+import io.reactivex.rxjava3.core.Completable;
+import io.reactivex.rxjava3.core.Flowable;
+import io.reactivex.rxjava3.core.Scheduler;
+import io.reactivex.rxjava3.core.Single;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.eventbus.ReplyFailure;
+import io.vertx.core.http.HttpClosedException;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Calls of a remote model to its upstream API, following its
+ * {@link UpstreamConfig}: every attempt has a timeout, failures worth retrying
+ * are retried with exponential backoff and full jitter, or after the time the
+ * upstream asked to wait when longer, and a slow attempt can be hedged with a
+ * second one, the first to succeed winning. A hedged call fails once both
+ * attempts failed, or as soon as one fails with a failure not worth retrying.
+ * <p>
+ * The model library clients report an upstream failure status in the message
+ * of their exception only, as Vert.x response expectations do, so it is read
+ * from there to retry and hedge their calls like the other ones.
+ * <p>
+ * Failures are reported as {@link ReplyException}s: a timeout with a
+ * {@code 504} status, a rejected input or rate limit with the upstream
+ * status, and other upstream failures with a {@code 502} status.
+ *
+ * @author GraviteeSource Team
+ */
+class UpstreamCalls {
+
+  // Latencies observed before hedging after their 95th percentile
+  static final int HEDGE_MIN_SAMPLES = 20;
+  static final double HEDGE_PERCENTILE = 95;
+
+  private static final Set<Integer> RETRYABLE_STATUSES = Set.of(
+    408,
+    429,
+    500,
+    502,
+    503,
+    504
+  );
+  private static final Set<Integer> FORWARDED_STATUSES = Set.of(
+    400,
+    413,
+    422,
+    429
+  );
+
+  private static final Pattern MESSAGE_STATUS = Pattern.compile(
+    "\\b(?:status(?: code)?|HTTP)\\W{0,3}([1-5]\\d{2})\\b",
+    Pattern.CASE_INSENSITIVE
+  );
+
+  private final UpstreamConfig config;
+  private final Scheduler scheduler;
+  private final LatencyHistogram latencies = new LatencyHistogram();
+
+  /**
+   * @param scheduler the scheduler of the timeouts, backoffs and hedges, a
+   * Vert.x one so that the calls go on on a Vert.x thread
+   */
+  UpstreamCalls(UpstreamConfig config, Scheduler scheduler) {
+    this.config = config;
+    this.scheduler = scheduler;
+  }
+
+  <T> Single<T> call(Supplier<Single<T>> call) {
+    return call(Completable.complete(), call);
+  }
+
+  /**
+   * @param admission subscribed before each attempt, retries and hedges
+   * included, failing the attempt when it fails
+   */
+  <T> Single<T> call(Completable admission, Supplier<Single<T>> call) {
+    return hedged(admission, call)
+      .retryWhen(errors -> {
+        var attempts = new AtomicInteger();
+        return errors.flatMap(error -> {
+          var attempt = attempts.incrementAndGet();
+          if (attempt > config.retries() || !isRetryable(error)) {
+            return Flowable.error(error);
+          }
+          return Flowable.timer(
+            Math.max(backoffMillis(attempt), retryAfterMillis(error)),
+            MILLISECONDS,
+            scheduler
+          );
+        });
+      })
+      .onErrorResumeNext(error -> Single.error(toReplyException(error)));
+  }
+
+  private <T> Single<T> hedged(
+    Completable admission,
+    Supplier<Single<T>> call
+  ) {
+    var delay = hedgeDelayMillis();
+    if (delay <= 0) {
+      return admission.andThen(attempt(call));
+    }
+    return Single.defer(() -> {
+      var failure = new AtomicReference<Throwable>();
+      return Single.ambArray(
+        admission
+          .andThen(attempt(call))
+          .onErrorResumeNext(error ->
+            failed(failure, error, isRetryable(error))
+          ),
+        Single.timer(delay, MILLISECONDS, scheduler)
+          .flatMap(__ -> admission.andThen(attempt(call)))
+          // A hedge refused by the admission only gives up on hedging
+          .onErrorResumeNext(error ->
+            failed(
+              failure,
+              error,
+              isRetryable(error) || error instanceof ReplyException
+            )
+          )
+      );
+    });
+  }
+
+  /**
+   * @param waits whether the failed attempt leaves the other one running
+   * @return the outcome of the failed attempt, failing with the first failure
+   * once both attempts failed
+   */
+  private static <T> Single<T> failed(
+    AtomicReference<Throwable> failure,
+    Throwable error,
+    boolean waits
+  ) {
+    if (!waits) {
+      return Single.error(error);
+    }
+    return failure.compareAndSet(null, error)
+      ? Single.never()
+      : Single.error(failure.get());
+  }
+
+  private <T> Single<T> attempt(Supplier<Single<T>> call) {
+    return Single.defer(() -> {
+      var start = System.nanoTime();
+      var attempt = call
+        .get()
+        .onErrorResumeNext(error -> Single.error(toUpstreamException(error)));
+      if (config.timeoutMillis() > 0) {
+        attempt = attempt.timeout(
+          config.timeoutMillis(),
+          MILLISECONDS,
+          scheduler
+        );
+      }
+      return attempt.doOnSuccess(__ ->
+        latencies.record(System.nanoTime() - start)
+      );
+    });
+  }
+
+  /**
+   * @return how long an attempt runs before being hedged, {@code 0} for no
+   * hedging
+   */
+  long hedgeDelayMillis() {
+    if (!config.hedging()) {
+      return 0;
+    }
+    if (config.hedgeDelayMillis() > 0) {
+      return config.hedgeDelayMillis();
+    }
+    if (latencies.count() < HEDGE_MIN_SAMPLES) {
+      return 0;
+    }
+    return Math.max(
+      1,
+      MILLISECONDS.convert(
+        latencies.percentileNanos(HEDGE_PERCENTILE),
+        NANOSECONDS
+      )
+    );
+  }
+
+  private long backoffMillis(int attempt) {
+    var backoff = Math.min(
+      config.maxBackoffMillis(),
+      config.backoffMillis() << Math.min(attempt - 1, 30)
+    );
+    return ThreadLocalRandom.current().nextLong(Math.max(1, backoff) + 1);
+  }
+
+  private static long retryAfterMillis(Throwable error) {
+    return error instanceof UpstreamException upstream
+      ? upstream.retryAfterMillis()
+      : 0;
+  }
+
+  static boolean isRetryable(Throwable error) {
+    return (
+      error instanceof TimeoutException ||
+      error instanceof IOException ||
+      (error instanceof UpstreamException upstream &&
+        RETRYABLE_STATUSES.contains(upstream.statusCode()))
+    );
+  }
+
+  /**
+   * @return the failure of a model library client as an
+   * {@link UpstreamException}, when it is an upstream failure status or a
+   * closed connection
+   */
+  static Throwable toUpstreamException(Throwable error) {
+    if (error instanceof UpstreamException || error instanceof ReplyException) {
+      return error;
+    }
+    if (error instanceof HttpClosedException) {
+      return new UpstreamException(502, error.getMessage());
+    }
+    var matcher = error.getMessage() == null
+      ? null
+      : MESSAGE_STATUS.matcher(error.getMessage());
+    if (matcher != null && matcher.find()) {
+      return new UpstreamException(
+        Integer.parseInt(matcher.group(1)),
+        error.getMessage()
+      );
+    }
+    return error;
+  }
+
+  static ReplyException toReplyException(Throwable error) {
+    if (error instanceof ReplyException reply) {
+      return reply;
+    }
+    int code;
+    if (error instanceof TimeoutException) {
+      code = 504;
+    } else if (
+      error instanceof UpstreamException upstream &&
+      FORWARDED_STATUSES.contains(upstream.statusCode())
+    ) {
+      code = upstream.statusCode();
+    } else {
+      code = 502;
+    }
+    var message = error instanceof TimeoutException
+      ? "Upstream timed out"
+      : error.getMessage();
+    return new ReplyException(ReplyFailure.RECIPIENT_FAILURE, code, message);
+  }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.inference.service.handler.config;
+
+import java.util.Map;
+
+/**
+ * Micro-batching settings of a remote inference address, read from the START
+ * payload.
+ * Batching is disabled unless {@code batchMaxSize} is greater than one.
+ *
+ * @author GraviteeSource Team
+ */
+public record BatchConfig(int maxSize, long maxWaitMicros) {
+  public static final String BATCH_MAX_SIZE = "batchMaxSize";
+  public static final String BATCH_MAX_WAIT_MICROS = "batchMaxWaitMicros";
+
+  static final int DEFAULT_MAX_SIZE = 1;
+  static final long DEFAULT_MAX_WAIT_MICROS = 0L;
+
+  public static BatchConfig fromPayload(Map<String, Object> payload) {
+    return new BatchConfig(
+      payload.get(BATCH_MAX_SIZE) instanceof Number maxSize
+        ? maxSize.intValue()
+        : DEFAULT_MAX_SIZE,
+      payload.get(BATCH_MAX_WAIT_MICROS) instanceof Number maxWait
+        ? maxWait.longValue()
+        : DEFAULT_MAX_WAIT_MICROS
+    );
+  }
+
+  public static BatchConfig disabled() {
+    return new BatchConfig(DEFAULT_MAX_SIZE, DEFAULT_MAX_WAIT_MICROS);
+  }
+
+  public boolean isEnabled() {
+    return maxSize > 1;
+  }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.inference.service.handler.config;
+
+import java.util.Map;
+
+/**
+ * Result cache settings of an inference address, read from the START payload.
+ * The cache is disabled unless {@code cacheMaxEntries} or {@code cacheMaxBytes}
+ * is set. A {@code cacheTtlMillis} of zero keeps entries until evicted.
+ *
+ * @author GraviteeSource Team
+ */
+public record CacheConfig(long maxEntries, long maxBytes, long ttlMillis) {
+  public static final String CACHE_MAX_ENTRIES = "cacheMaxEntries";
+  public static final String CACHE_MAX_BYTES = "cacheMaxBytes";
+  public static final String CACHE_TTL_MILLIS = "cacheTtlMillis";
+
+  static final long DEFAULT_MAX_ENTRIES = 0L;
+  static final long DEFAULT_MAX_BYTES = 0L;
+  static final long DEFAULT_TTL_MILLIS = 0L;
+
+  public static CacheConfig fromPayload(Map<String, Object> payload) {
+    return new CacheConfig(
+      payload.get(CACHE_MAX_ENTRIES) instanceof Number maxEntries
+        ? maxEntries.longValue()
+        : DEFAULT_MAX_ENTRIES,
+      payload.get(CACHE_MAX_BYTES) instanceof Number maxBytes
+        ? maxBytes.longValue()
+        : DEFAULT_MAX_BYTES,
+      payload.get(CACHE_TTL_MILLIS) instanceof Number ttl
+        ? ttl.longValue()
+        : DEFAULT_TTL_MILLIS
+    );
+  }
+
+  public static CacheConfig disabled() {
+    return new CacheConfig(
+      DEFAULT_MAX_ENTRIES,
+      DEFAULT_MAX_BYTES,
+      DEFAULT_TTL_MILLIS
+    );
+  }
+
+  public boolean isEnabled() {
+    return maxEntries > 0 || maxBytes > 0;
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.inference.service.handler.config;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Settings of the circuit breaker of a remote model, read from the START
+ * payload. The breaker is disabled by default.
+ * <p>
+ * The breaker opens when, over the last {@code circuitWindowSize} calls and
+ * once {@code circuitMinimumCalls} were made, the percentage of failed calls
+ * reaches {@code circuitFailureRateThreshold} or the percentage of calls
+ * slower than {@code circuitSlowCallMillis} reaches
+ * {@code circuitSlowCallRateThreshold}. It stays open for
+ * {@code circuitOpenMillis}, then lets {@code circuitHalfOpenProbes} calls
+ * through and closes once they all succeed.
+ *
+ * @author GraviteeSource Team
+ */
+public record CircuitBreakerConfig(
+  boolean enabled,
+  int windowSize,
+  int minimumCalls,
+  double failureRateThreshold,
+  long slowCallMillis,
+  double slowCallRateThreshold,
+  long openMillis,
+  int halfOpenProbes
+) {
+  public static final String CIRCUIT_BREAKER = "circuitBreaker";
+  public static final String CIRCUIT_WINDOW_SIZE = "circuitWindowSize";
+  public static final String CIRCUIT_MINIMUM_CALLS = "circuitMinimumCalls";
+  public static final String CIRCUIT_FAILURE_RATE_THRESHOLD =
+    "circuitFailureRateThreshold";
+  public static final String CIRCUIT_SLOW_CALL_MILLIS = "circuitSlowCallMillis";
+  public static final String CIRCUIT_SLOW_CALL_RATE_THRESHOLD =
+    "circuitSlowCallRateThreshold";
+  public static final String CIRCUIT_OPEN_MILLIS = "circuitOpenMillis";
+  public static final String CIRCUIT_HALF_OPEN_PROBES = "circuitHalfOpenProbes";
+
+  public static final List<String> KEYS = List.of(
+    CIRCUIT_BREAKER,
+    CIRCUIT_WINDOW_SIZE,
+    CIRCUIT_MINIMUM_CALLS,
+    CIRCUIT_FAILURE_RATE_THRESHOLD,
+    CIRCUIT_SLOW_CALL_MILLIS,
+    CIRCUIT_SLOW_CALL_RATE_THRESHOLD,
+    CIRCUIT_OPEN_MILLIS,
+    CIRCUIT_HALF_OPEN_PROBES
+  );
+
+  static final boolean DEFAULT_ENABLED = false;
+  static final int DEFAULT_WINDOW_SIZE = 20;
+  static final int DEFAULT_MINIMUM_CALLS = 10;
+  static final double DEFAULT_FAILURE_RATE_THRESHOLD = 50d;
+  static final long DEFAULT_SLOW_CALL_MILLIS = 0L;
+  static final double DEFAULT_SLOW_CALL_RATE_THRESHOLD = 100d;
+  static final long DEFAULT_OPEN_MILLIS = 30_000L;
+  static final int DEFAULT_HALF_OPEN_PROBES = 3;
+
+  public static CircuitBreakerConfig fromPayload(Map<String, Object> payload) {
+    var windowSize = payload.get(CIRCUIT_WINDOW_SIZE) instanceof Number size
+      ? Math.max(1, size.intValue())
+      : DEFAULT_WINDOW_SIZE;
+    return new CircuitBreakerConfig(
+      payload.get(CIRCUIT_BREAKER) instanceof Boolean enabled
+        ? enabled
+        : DEFAULT_ENABLED,
+      windowSize,
+      payload.get(CIRCUIT_MINIMUM_CALLS) instanceof Number minimum
+        ? Math.clamp(minimum.intValue(), 1, windowSize)
+        : Math.min(DEFAULT_MINIMUM_CALLS, windowSize),
+      payload.get(CIRCUIT_FAILURE_RATE_THRESHOLD) instanceof Number rate
+        ? rate.doubleValue()
+        : DEFAULT_FAILURE_RATE_THRESHOLD,
+      payload.get(CIRCUIT_SLOW_CALL_MILLIS) instanceof Number slow
+        ? slow.longValue()
+        : DEFAULT_SLOW_CALL_MILLIS,
+      payload.get(CIRCUIT_SLOW_CALL_RATE_THRESHOLD) instanceof Number rate
+        ? rate.doubleValue()
+        : DEFAULT_SLOW_CALL_RATE_THRESHOLD,
+      payload.get(CIRCUIT_OPEN_MILLIS) instanceof Number open
+        ? open.longValue()
+        : DEFAULT_OPEN_MILLIS,
+      payload.get(CIRCUIT_HALF_OPEN_PROBES) instanceof Number probes
+        ? Math.max(1, probes.intValue())
+        : DEFAULT_HALF_OPEN_PROBES
+    );
+  }
+
+  public static CircuitBreakerConfig disabled() {
+    return fromPayload(Map.of());
+  }
+
+  /**
+   * @return whether slow calls are counted, {@code false} when no slow call
+   * duration is set
+   */
+  public boolean isSlowCallCounted() {
+    return slowCallMillis > 0;
+  }
+}
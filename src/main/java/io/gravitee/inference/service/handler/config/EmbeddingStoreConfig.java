@@ -0,0 +1,63 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.inference.service.handler.config;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persistent embedding store settings of a remote model, read from the START
+ * payload. The store is disabled unless {@code embeddingStoreMaxBytes} is set.
+ *
+ * @author GraviteeSource Team
+ */
+public record EmbeddingStoreConfig(long maxBytes, int segmentBytes) {
+  public static final String EMBEDDING_STORE_MAX_BYTES =
+    "embeddingStoreMaxBytes";
+  public static final String EMBEDDING_STORE_SEGMENT_BYTES =
+    "embeddingStoreSegmentBytes";
+
+  static final long DEFAULT_MAX_BYTES = 0L;
+  static final int DEFAULT_SEGMENT_BYTES = 64 * 1024 * 1024;
+
+  public static final List<String> KEYS = List.of(
+    EMBEDDING_STORE_MAX_BYTES,
+    EMBEDDING_STORE_SEGMENT_BYTES
+  );
+
+  public static EmbeddingStoreConfig fromPayload(Map<String, Object> payload) {
+    long maxBytes = payload.get(EMBEDDING_STORE_MAX_BYTES) instanceof Number n
+      ? n.longValue()
+      : DEFAULT_MAX_BYTES;
+    int segmentBytes = payload.get(EMBEDDING_STORE_SEGMENT_BYTES) instanceof
+      Number n
+      ? n.intValue()
+      : DEFAULT_SEGMENT_BYTES;
+    // Eviction drops whole segments, keep at least two of them in the budget
+    if (maxBytes > 0 && segmentBytes > maxBytes / 2) {
+      segmentBytes = (int) Math.max(1, maxBytes / 2);
+    }
+    return new EmbeddingStoreConfig(maxBytes, segmentBytes);
+  }
+
+  public static EmbeddingStoreConfig disabled() {
+    return new EmbeddingStoreConfig(DEFAULT_MAX_BYTES, DEFAULT_SEGMENT_BYTES);
+  }
+
+  public boolean isEnabled() {
+    return maxBytes > 0;
+  }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.inference.service.handler.config;
+
+import io.gravitee.inference.api.utils.ConfigWrapper;
+import io.vertx.core.http.HttpVersion;
+import io.vertx.core.http.PoolOptions;
+import io.vertx.ext.web.client.WebClientOptions;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Connection settings of the client calling a remote model, read from the
+ * START payload. A size or timeout of {@code 0} keeps the Vert.x default.
+ * <p>
+ * With {@code HTTP_2}, requests are multiplexed on the connections of the
+ * pool, negotiated with ALPN over TLS and with an upgrade otherwise.
+ *
+ * @author GraviteeSource Team
+ */
+public record HttpClientConfig(
+  HttpVersion version,
+  int poolSize,
+  int multiplexingLimit,
+  boolean pipelining,
+  boolean keepAlive,
+  int keepAliveTimeoutSeconds,
+  int connectTimeoutMillis,
+  int idleTimeoutSeconds
+) {
+  public static final String HTTP_VERSION = "httpVersion";
+  public static final String HTTP_POOL_SIZE = "httpPoolSize";
+  public static final String HTTP_MULTIPLEXING_LIMIT = "httpMultiplexingLimit";
+  public static final String HTTP_PIPELINING = "httpPipelining";
+  public static final String HTTP_KEEP_ALIVE = "httpKeepAlive";
+  public static final String HTTP_KEEP_ALIVE_TIMEOUT = "httpKeepAliveTimeout";
+  public static final String HTTP_CONNECT_TIMEOUT = "httpConnectTimeout";
+  public static final String HTTP_IDLE_TIMEOUT = "httpIdleTimeout";
+
+  public static final List<String> KEYS = List.of(
+    HTTP_VERSION,
+    HTTP_POOL_SIZE,
+    HTTP_MULTIPLEXING_LIMIT,
+    HTTP_PIPELINING,
+    HTTP_KEEP_ALIVE,
+    HTTP_KEEP_ALIVE_TIMEOUT,
+    HTTP_CONNECT_TIMEOUT,
+    HTTP_IDLE_TIMEOUT
+  );
+
+  static final HttpVersion DEFAULT_VERSION = HttpVersion.HTTP_1_1;
+  static final int DEFAULT = 0;
+  static final boolean DEFAULT_PIPELINING = false;
+  static final boolean DEFAULT_KEEP_ALIVE = true;
+
+  public static HttpClientConfig fromConfig(ConfigWrapper config) {
+    return new HttpClientConfig(
+      config.get(HTTP_VERSION) instanceof String version
+        ? HttpVersion.valueOf(version.toUpperCase(Locale.ROOT))
+        : DEFAULT_VERSION,
+      intValue(config, HTTP_POOL_SIZE),
+      intValue(config, HTTP_MULTIPLEXING_LIMIT),
+      config.get(HTTP_PIPELINING) instanceof Boolean pipelining
+        ? pipelining
+        : DEFAULT_PIPELINING,
+      config.get(HTTP_KEEP_ALIVE) instanceof Boolean keepAlive
+        ? keepAlive
+        : DEFAULT_KEEP_ALIVE,
+      intValue(config, HTTP_KEEP_ALIVE_TIMEOUT),
+      intValue(config, HTTP_CONNECT_TIMEOUT),
+      intValue(config, HTTP_IDLE_TIMEOUT)
+    );
+  }
+
+  public static HttpClientConfig defaults() {
+    return fromConfig(new ConfigWrapper(Map.of()));
+  }
+
+  private static int intValue(ConfigWrapper config, String key) {
+    return config.get(key) instanceof Number value
+      ? value.intValue()
+      : DEFAULT;
+  }
+
+  public WebClientOptions toWebClientOptions(boolean ssl) {
+    var options = new WebClientOptions()
+      .setProtocolVersion(version)
+      .setSsl(ssl)
+      .setUseAlpn(ssl && version == HttpVersion.HTTP_2)
+      .setPipelining(pipelining)
+      .setKeepAlive(keepAlive);
+    if (multiplexingLimit > 0) {
+      options.setHttp2MultiplexingLimit(multiplexingLimit);
+    }
+    if (keepAliveTimeoutSeconds > 0) {
+      options
+        .setKeepAliveTimeout(keepAliveTimeoutSeconds)
+        .setHttp2KeepAliveTimeout(keepAliveTimeoutSeconds);
+    }
+    if (connectTimeoutMillis > 0) {
+      options.setConnectTimeout(connectTimeoutMillis);
+    }
+    if (idleTimeoutSeconds > 0) {
+      options.setIdleTimeout(idleTimeoutSeconds);
+    }
+    return options;
+  }
+
+  public PoolOptions toPoolOptions() {
+    var options = new PoolOptions();
+    if (poolSize > 0) {
+      options.setHttp1MaxSize(poolSize).setHttp2MaxSize(poolSize);
+    }
+    return options;
+  }
+}
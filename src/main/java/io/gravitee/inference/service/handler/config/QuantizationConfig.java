@@ -0,0 +1,96 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.inference.service.handler.config;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Quantization settings of a local model, read from the START payload.
+ * <p>
+ * ONNX Runtime cannot quantize a model from Java, so a quantized model is the
+ * variant published next to the original one, named after it with a
+ * {@code _quantized} suffix by default, as Hugging Face Optimum does. When
+ * samples are given, the original model is fetched too and the quantized one
+ * is compared with it on the samples when it loads.
+ *
+ * @author GraviteeSource Team
+ */
+public record QuantizationConfig(
+  Quantization quantization,
+  String modelPath,
+  List<String> samples
+) {
+  public static final String QUANTIZATION = "quantization";
+  public static final String QUANTIZATION_MODEL_PATH = "quantizationModelPath";
+  public static final String QUANTIZATION_SAMPLES = "quantizationSamples";
+
+  /**
+   * Local path of the original model the quantized one is compared with,
+   * added to the payload by the provider.
+   */
+  public static final String QUANTIZATION_REFERENCE_PATH =
+    "quantizationReferencePath";
+
+  static final String QUANTIZED_SUFFIX = "_quantized";
+
+  public enum Quantization {
+    NONE,
+    INT8,
+  }
+
+  /**
+   * @param originalPath the path of the original model in its repository
+   */
+  public static QuantizationConfig fromPayload(
+    Map<String, Object> payload,
+    String originalPath
+  ) {
+    var quantization = payload.get(QUANTIZATION) instanceof String value
+      ? Quantization.valueOf(value.toUpperCase(Locale.ROOT))
+      : Quantization.NONE;
+    return new QuantizationConfig(
+      quantization,
+      payload.get(QUANTIZATION_MODEL_PATH) instanceof String path
+        ? path
+        : quantizedPath(originalPath),
+      payload.get(QUANTIZATION_SAMPLES) instanceof List<?> samples
+        ? samples.stream().map(String::valueOf).toList()
+        : List.of()
+    );
+  }
+
+  public boolean isEnabled() {
+    return quantization != Quantization.NONE;
+  }
+
+  public boolean isMeasured() {
+    return isEnabled() && !samples.isEmpty();
+  }
+
+  private static String quantizedPath(String originalPath) {
+    if (originalPath == null) {
+      return null;
+    }
+    var extension = originalPath.lastIndexOf('.');
+    return extension > originalPath.lastIndexOf('/')
+      ? originalPath.substring(0, extension) +
+      QUANTIZED_SUFFIX +
+      originalPath.substring(extension)
+      : originalPath + QUANTIZED_SUFFIX;
+  }
+}
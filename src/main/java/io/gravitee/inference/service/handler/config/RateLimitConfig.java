@@ -0,0 +1,71 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.inference.service.handler.config;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Quotas of the calls of a remote model to its upstream API, read from the
+ * START payload. Calls are not limited by default.
+ * <p>
+ * Calls beyond {@code rateLimitRequestsPerMinute} or
+ * {@code rateLimitTokensPerMinute} wait for the quota to refill, and are
+ * rejected right away when they would wait longer than
+ * {@code rateLimitMaxQueueMillis}.
+ *
+ * @author GraviteeSource Team
+ */
+public record RateLimitConfig(
+  long requestsPerMinute,
+  long tokensPerMinute,
+  long maxQueueMillis
+) {
+  public static final String RATE_LIMIT_REQUESTS_PER_MINUTE =
+    "rateLimitRequestsPerMinute";
+  public static final String RATE_LIMIT_TOKENS_PER_MINUTE =
+    "rateLimitTokensPerMinute";
+  public static final String RATE_LIMIT_MAX_QUEUE_MILLIS =
+    "rateLimitMaxQueueMillis";
+
+  public static final List<String> KEYS = List.of(
+    RATE_LIMIT_REQUESTS_PER_MINUTE,
+    RATE_LIMIT_TOKENS_PER_MINUTE,
+    RATE_LIMIT_MAX_QUEUE_MILLIS
+  );
+
+  static final long DEFAULT_REQUESTS_PER_MINUTE = 0L;
+  static final long DEFAULT_TOKENS_PER_MINUTE = 0L;
+  static final long DEFAULT_MAX_QUEUE_MILLIS = 10_000L;
+
+  public static RateLimitConfig fromPayload(Map<String, Object> payload) {
+    return new RateLimitConfig(
+      payload.get(RATE_LIMIT_REQUESTS_PER_MINUTE) instanceof Number requests
+        ? Math.max(0, requests.longValue())
+        : DEFAULT_REQUESTS_PER_MINUTE,
+      payload.get(RATE_LIMIT_TOKENS_PER_MINUTE) instanceof Number tokens
+        ? Math.max(0, tokens.longValue())
+        : DEFAULT_TOKENS_PER_MINUTE,
+      payload.get(RATE_LIMIT_MAX_QUEUE_MILLIS) instanceof Number queue
+        ? Math.max(0, queue.longValue())
+        : DEFAULT_MAX_QUEUE_MILLIS
+    );
+  }
+
+  public static RateLimitConfig defaults() {
+    return fromPayload(Map.of());
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.inference.service.handler.config;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Settings of the calls of a remote model to its upstream API, read from the
+ * START payload. Calls have no timeout, retry nor hedging by default.
+ * <p>
+ * Retries wait a random time up to an exponential backoff, doubling from
+ * {@code upstreamBackoffMillis} up to {@code upstreamMaxBackoffMillis}. A
+ * hedged call starts a second attempt when the first one takes longer than
+ * {@code upstreamHedgeDelayMillis}, or than the 95th percentile of the
+ * latencies observed so far when it is {@code 0}.
+ *
+ * @author GraviteeSource Team
+ */
+public record UpstreamConfig(
+  long timeoutMillis,
+  int retries,
+  long backoffMillis,
+  long maxBackoffMillis,
+  boolean hedging,
+  long hedgeDelayMillis
+) {
+  public static final String UPSTREAM_TIMEOUT_MILLIS = "upstreamTimeoutMillis";
+  public static final String UPSTREAM_RETRIES = "upstreamRetries";
+  public static final String UPSTREAM_BACKOFF_MILLIS = "upstreamBackoffMillis";
+  public static final String UPSTREAM_MAX_BACKOFF_MILLIS =
+    "upstreamMaxBackoffMillis";
+  public static final String UPSTREAM_HEDGING = "upstreamHedging";
+  public static final String UPSTREAM_HEDGE_DELAY_MILLIS =
+    "upstreamHedgeDelayMillis";
+
+  public static final List<String> KEYS = List.of(
+    UPSTREAM_TIMEOUT_MILLIS,
+    UPSTREAM_RETRIES,
+    UPSTREAM_BACKOFF_MILLIS,
+    UPSTREAM_MAX_BACKOFF_MILLIS,
+    UPSTREAM_HEDGING,
+    UPSTREAM_HEDGE_DELAY_MILLIS
+  );
+
+  static final long DEFAULT_TIMEOUT_MILLIS = 0L;
+  static final int DEFAULT_RETRIES = 0;
+  static final long DEFAULT_BACKOFF_MILLIS = 100L;
+  static final long DEFAULT_MAX_BACKOFF_MILLIS = 2_000L;
+  static final boolean DEFAULT_HEDGING = false;
+  static final long DEFAULT_HEDGE_DELAY_MILLIS = 0L;
+
+  public static UpstreamConfig fromPayload(Map<String, Object> payload) {
+    return new UpstreamConfig(
+      payload.get(UPSTREAM_TIMEOUT_MILLIS) instanceof Number timeout
+        ? timeout.longValue()
+        : DEFAULT_TIMEOUT_MILLIS,
+      payload.get(UPSTREAM_RETRIES) instanceof Number retries
+        ? Math.max(0, retries.intValue())
+        : DEFAULT_RETRIES,
+      payload.get(UPSTREAM_BACKOFF_MILLIS) instanceof Number backoff
+        ? backoff.longValue()
+        : DEFAULT_BACKOFF_MILLIS,
+      payload.get(UPSTREAM_MAX_BACKOFF_MILLIS) instanceof Number maxBackoff
+        ? maxBackoff.longValue()
+        : DEFAULT_MAX_BACKOFF_MILLIS,
+      payload.get(UPSTREAM_HEDGING) instanceof Boolean hedging
+        ? hedging
+        : DEFAULT_HEDGING,
+      payload.get(UPSTREAM_HEDGE_DELAY_MILLIS) instanceof Number delay
+        ? delay.longValue()
+        : DEFAULT_HEDGE_DELAY_MILLIS
+    );
+  }
+
+  public static UpstreamConfig defaults() {
+    return fromPayload(Map.of());
+  }
+}
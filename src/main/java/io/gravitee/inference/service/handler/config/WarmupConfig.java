@@ -0,0 +1,80 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.inference.service.handler.config;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Warm-up settings of a model, read from the START payload. Warm-up is
+ * disabled unless {@code warmupIterations} is greater than zero.
+ *
+ * @author GraviteeSource Team
+ */
+public record WarmupConfig(int iterations, List<Integer> sequenceLengths) {
+  public static final String WARMUP_ITERATIONS = "warmupIterations";
+  public static final String WARMUP_SEQUENCE_LENGTHS = "warmupSequenceLengths";
+
+  public static final List<String> KEYS = List.of(
+    WARMUP_ITERATIONS,
+    WARMUP_SEQUENCE_LENGTHS
+  );
+
+  static final int DEFAULT_ITERATIONS = 0;
+  static final List<Integer> DEFAULT_SEQUENCE_LENGTHS = List.of(16, 128, 512);
+
+  private static final String[] WORDS =
+    "the quick brown fox jumps over the lazy dog".split(" ");
+
+  public static WarmupConfig fromPayload(Map<String, Object> payload) {
+    return new WarmupConfig(
+      payload.get(WARMUP_ITERATIONS) instanceof Number iterations
+        ? iterations.intValue()
+        : DEFAULT_ITERATIONS,
+      payload.get(WARMUP_SEQUENCE_LENGTHS) instanceof List<?> lengths &&
+        !lengths.isEmpty()
+        ? lengths
+          .stream()
+          .map(length -> ((Number) length).intValue())
+          .toList()
+        : DEFAULT_SEQUENCE_LENGTHS
+    );
+  }
+
+  public boolean isEnabled() {
+    return iterations > 0;
+  }
+
+  /**
+   * @return the synthetic inputs to infer, cycling through the sequence
+   * lengths, none longer than {@code maxSequenceLength} words
+   */
+  public List<String> inputs(int maxSequenceLength) {
+    return IntStream.range(0, iterations)
+      .mapToObj(i -> sequenceLengths.get(i % sequenceLengths.size()))
+      .map(length -> text(Math.min(length, maxSequenceLength)))
+      .toList();
+  }
+
+  private static String text(int words) {
+    var text = new StringBuilder();
+    for (int i = 0; i < words; i++) {
+      text.append(i == 0 ? "" : " ").append(WORDS[i % WORDS.length]);
+    }
+    return text.toString();
+  }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.inference.service.handler.config;
+
+import java.util.Map;
+
+/**
+ * Worker settings of a local model, read from the START payload.
+ * <p>
+ * A model runs on the shared Vert.x worker pool, one request at a time, unless
+ * {@code workerThreads} is set, in which case it gets its own pool running up
+ * to that many requests concurrently. Requests are queued without bound unless
+ * {@code workerQueueSize} is set, in which case requests beyond it are
+ * rejected.
+ * <p>
+ * The model is loaded {@code replicas} times, and gets one thread per replica
+ * unless {@code workerThreads} is set.
+ *
+ * @author GraviteeSource Team
+ */
+public record WorkerConfig(int threads, int queueSize, int replicas) {
+  public static final String WORKER_THREADS = "workerThreads";
+  public static final String WORKER_QUEUE_SIZE = "workerQueueSize";
+  public static final String REPLICAS = "replicas";
+
+  static final int DEFAULT_THREADS = 0;
+  static final int DEFAULT_QUEUE_SIZE = 0;
+  static final int DEFAULT_REPLICAS = 1;
+
+  public static WorkerConfig fromPayload(Map<String, Object> payload) {
+    var replicas = payload.get(REPLICAS) instanceof Number count
+      ? Math.max(1, count.intValue())
+      : DEFAULT_REPLICAS;
+    return new WorkerConfig(
+      payload.get(WORKER_THREADS) instanceof Number threads
+        ? threads.intValue()
+        : replicas > 1 ? replicas : DEFAULT_THREADS,
+      payload.get(WORKER_QUEUE_SIZE) instanceof Number queueSize
+        ? queueSize.intValue()
+        : DEFAULT_QUEUE_SIZE,
+      replicas
+    );
+  }
+
+  public static WorkerConfig shared() {
+    return new WorkerConfig(
+      DEFAULT_THREADS,
+      DEFAULT_QUEUE_SIZE,
+      DEFAULT_REPLICAS
+    );
+  }
+
+  public boolean isDedicated() {
+    return threads > 0;
+  }
+
+  public boolean isBounded() {
+    return queueSize > 0;
+  }
+}
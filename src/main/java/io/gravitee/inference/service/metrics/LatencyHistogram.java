@@ -0,0 +1,130 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.inference.service.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with log-linear buckets, in the spirit of
+ * HdrHistogram: every power of two range is split into 16 linear buckets, so
+ * that recorded values are reported within about 6% of their actual value.
+ *
+ * @author GraviteeSource Team
+ */
+public class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 4;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+  private static final double NANOS_PER_MICRO = 1_000d;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+  private final LongAdder count = new LongAdder();
+  private final LongAdder sum = new LongAdder();
+  private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+  public void record(long nanos) {
+    var value = Math.max(0, nanos);
+    counts.incrementAndGet(index(value));
+    count.increment();
+    sum.add(value);
+    max.accumulate(value);
+  }
+
+  public long meanNanos() {
+    var total = count.sum();
+    return total == 0 ? 0 : sum.sum() / total;
+  }
+
+  public long count() {
+    return count.sum();
+  }
+
+  /**
+   * @return the given percentile of the values recorded so far, in
+   * nanoseconds
+   */
+  public long percentileNanos(double percentile) {
+    var total = count.sum();
+    return total == 0
+      ? 0
+      : Math.round(percentile(total, percentile) * NANOS_PER_MICRO);
+  }
+
+  /**
+   * @return the percentiles of the values recorded so far, in microseconds
+   */
+  public Snapshot snapshot() {
+    var total = count.sum();
+    if (total == 0) {
+      return new Snapshot(0, 0, 0, 0, 0, 0, 0);
+    }
+    return new Snapshot(
+      total,
+      sum.sum() / NANOS_PER_MICRO / total,
+      max.get() / NANOS_PER_MICRO,
+      percentile(total, 50),
+      percentile(total, 90),
+      percentile(total, 99),
+      percentile(total, 99.9)
+    );
+  }
+
+  private double percentile(long total, double percentile) {
+    var rank = (long) Math.ceil(total * percentile / 100);
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += counts.get(i);
+      if (seen >= rank) {
+        return Math.min(highestValue(i), max.get()) / NANOS_PER_MICRO;
+      }
+    }
+    return max.get() / NANOS_PER_MICRO;
+  }
+
+  static int index(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+    int subBucket = (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    return (shift + 1) * SUB_BUCKETS + subBucket;
+  }
+
+  static long highestValue(int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+    int shift = index / SUB_BUCKETS - 1;
+    int subBucket = index % SUB_BUCKETS;
+    return ((long) (SUB_BUCKETS + subBucket + 1) << shift) - 1;
+  }
+
+  /**
+   * Latencies in microseconds.
+   */
+  public record Snapshot(
+    long count,
+    double mean,
+    double max,
+    double p50,
+    double p90,
+    double p99,
+    double p999
+  ) {}
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.inference.service.metrics;
+
+import io.gravitee.inference.service.cache.CacheStats;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Request metrics of a model address.
+ * <p>
+ * A request is first decoded on the event loop, then waits in queue for a
+ * worker, runs on the model and has its output encoded into the reply.
+ *
+ * @author GraviteeSource Team
+ */
+public class ModelMetrics {
+
+  private final String address;
+  private final LatencyHistogram decode = new LatencyHistogram();
+  private final LatencyHistogram queueWait = new LatencyHistogram();
+  private final LatencyHistogram inference = new LatencyHistogram();
+  private final LatencyHistogram encode = new LatencyHistogram();
+  private final LatencyHistogram total = new LatencyHistogram();
+  private final AtomicInteger queued = new AtomicInteger();
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final LongAdder requests = new LongAdder();
+  private final LongAdder deduplicated = new LongAdder();
+  private final Map<Integer, LongAdder> errors = new ConcurrentHashMap<>();
+
+  public ModelMetrics(String address) {
+    this.address = address;
+  }
+
+  public void decoded(long nanos) {
+    requests.increment();
+    decode.record(nanos);
+  }
+
+  public void enqueued() {
+    queued.incrementAndGet();
+  }
+
+  public void started(long queueWaitNanos) {
+    queued.decrementAndGet();
+    inFlight.incrementAndGet();
+    queueWait.record(queueWaitNanos);
+  }
+
+  /**
+   * A request joined the identical one already running on the model.
+   */
+  public void deduplicated() {
+    deduplicated.increment();
+  }
+
+  public void inferred(long nanos) {
+    inference.record(nanos);
+  }
+
+  public void finished() {
+    inFlight.decrementAndGet();
+  }
+
+  public void replied(long encodeNanos, long totalNanos) {
+    encode.record(encodeNanos);
+    total.record(totalNanos);
+  }
+
+  public void failed(int code) {
+    errors.computeIfAbsent(code, __ -> new LongAdder()).increment();
+  }
+
+  public long meanInferenceNanos() {
+    return inference.meanNanos();
+  }
+
+  public Snapshot snapshot(CacheStats cache, CircuitStats circuit) {
+    var errorCounts = new TreeMap<Integer, Long>();
+    errors.forEach((code, count) -> errorCounts.put(code, count.sum()));
+    return new Snapshot(
+      address,
+      requests.sum(),
+      deduplicated.sum(),
+      queued.get(),
+      inFlight.get(),
+      errorCounts,
+      decode.snapshot(),
+      queueWait.snapshot(),
+      inference.snapshot(),
+      encode.snapshot(),
+      total.snapshot(),
+      cache,
+      circuit
+    );
+  }
+
+  /**
+   * Metrics of a model address since it was started. The result cache stats
+   * are {@code null} when the cache is disabled, the circuit breaker state
+   * when the model has no circuit breaker.
+   */
+  public record Snapshot(
+    String address,
+    long requests,
+    long deduplicated,
+    int queued,
+    int inFlight,
+    Map<Integer, Long> errors,
+    LatencyHistogram.Snapshot decode,
+    LatencyHistogram.Snapshot queueWait,
+    LatencyHistogram.Snapshot inference,
+    LatencyHistogram.Snapshot encode,
+    LatencyHistogram.Snapshot total,
+    CacheStats cache,
+    CircuitStats circuit
+  ) {}
+}
@@ -32,6 +32,7 @@ import io.gravitee.inference.onnx.bert.config.OnnxBertConfig;
 import io.gravitee.inference.onnx.bert.embedding.OnnxBertEmbeddingModel;
 import io.gravitee.inference.onnx.bert.resource.OnnxBertResource;
 import io.gravitee.inference.service.repository.HandlerRepository;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
 import java.util.Map;
@@ -79,17 +80,19 @@ public class LocalModelFactory
     ConfigWrapper config
   ) {
     ClassifierMode mode = ClassifierMode.valueOf(config.get(CLASSIFIER_MODE));
-    return new OnnxBertClassifierModel(
-      new OnnxBertConfig(
-        getResource(config),
-        NativeMath.INSTANCE,
-        Map.of(
-          CLASSIFIER_MODE,
-          mode,
-          CLASSIFIER_LABELS,
-          ofNullable(config.get(CLASSIFIER_LABELS)).orElse(List.of()),
-          DISCARDED_LABELS,
-          ofNullable(config.get(DISCARDED_LABELS)).orElse(List.of())
+    return loadSession(config, model ->
+      new OnnxBertClassifierModel(
+        new OnnxBertConfig(
+          getResource(config, model),
+          NativeMath.INSTANCE,
+          Map.of(
+            CLASSIFIER_MODE,
+            mode,
+            CLASSIFIER_LABELS,
+            ofNullable(config.get(CLASSIFIER_LABELS)).orElse(List.of()),
+            DISCARDED_LABELS,
+            ofNullable(config.get(DISCARDED_LABELS)).orElse(List.of())
+          )
         )
       )
     );
@@ -99,24 +102,42 @@ public class LocalModelFactory
     PoolingMode poolingMode = PoolingMode.valueOf(
       config.get(POOLING_MODE, PoolingMode.MEAN.name())
     );
-    return new OnnxBertEmbeddingModel(
-      new OnnxBertConfig(
-        getResource(config),
-        NativeMath.INSTANCE,
-        Map.of(
-          POOLING_MODE,
-          poolingMode,
-          MAX_SEQUENCE_LENGTH,
-          config.get(MAX_SEQUENCE_LENGTH, MAX_SEQUENCE_LENGTH_DEFAULT_VALUE)
+    return loadSession(config, model ->
+      new OnnxBertEmbeddingModel(
+        new OnnxBertConfig(
+          getResource(config, model),
+          NativeMath.INSTANCE,
+          Map.of(
+            POOLING_MODE,
+            poolingMode,
+            MAX_SEQUENCE_LENGTH,
+            config.get(MAX_SEQUENCE_LENGTH, MAX_SEQUENCE_LENGTH_DEFAULT_VALUE)
+          )
         )
       )
     );
   }
 
-  private static OnnxBertResource getResource(ConfigWrapper config) {
+  /**
+   * Creates the session of the model from its optimized graph.
+   */
+  private static <T> T loadSession(
+    ConfigWrapper config,
+    Function<Path, T> load
+  ) {
+    return OptimizedModelCache.load(
+      Paths.get(config.<String>get(MODEL_PATH)),
+      load
+    );
+  }
+
+  private static OnnxBertResource getResource(
+    ConfigWrapper config,
+    Path model
+  ) {
     LOGGER.debug("Getting resource from config: {}", config);
     return new OnnxBertResource(
-      Paths.get(config.<String>get(MODEL_PATH)),
+      model,
       Paths.get(config.<String>get(TOKENIZER_PATH)),
       ofNullable(config.<String>get(CONFIG_JSON_PATH))
         .map(Paths::get)
@@ -0,0 +1,290 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.inference.service.model;
+
+import io.gravitee.inference.api.embedding.EmbeddingTokenCount;
+import io.reactivex.rxjava3.core.Single;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.rxjava3.ext.web.client.HttpResponse;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+import java.util.regex.Pattern;
+
+/**
+ * Embeds several inputs with a single call to an OpenAI compatible
+ * {@code /embeddings} endpoint, sending {@code input} as a JSON array.
+ * <p>
+ * The endpoint only reports the prompt token usage of the whole request, it is
+ * split between the inputs proportionally to their length.
+ * <p>
+ * When a response asks to wait before the next call, with a
+ * {@code Retry-After} header or an exhausted {@code x-ratelimit-remaining-*}
+ * header, the wait is given to the throttle listener.
+ *
+ * @author GraviteeSource Team
+ */
+public class OpenAIBatchEmbeddingInference {
+
+  static final String EMBEDDINGS_PATH = "/embeddings";
+
+  // OpenAI rate limit reset durations, such as 1s, 6m0s or 20ms
+  private static final Pattern DURATION_PART = Pattern.compile(
+    "(\\d+(?:\\.\\d+)?)(ms|h|m|s)"
+  );
+
+  private final RemoteClients.SharedClient client;
+  private final String endpoint;
+  private final String apiKey;
+  private final String organizationId;
+  private final String projectId;
+  private final String model;
+  private final Integer dimensions;
+  private final String encodingFormat;
+  private volatile LongConsumer throttleListener = millis -> {};
+
+  public OpenAIBatchEmbeddingInference(
+    URI uri,
+    String apiKey,
+    String organizationId,
+    String projectId,
+    String model,
+    Integer dimensions,
+    String encodingFormat,
+    RemoteClients.SharedClient client
+  ) {
+    this.client = client;
+    this.endpoint = uri.toString().replaceAll("/+$", "") + EMBEDDINGS_PATH;
+    this.apiKey = apiKey;
+    this.organizationId = organizationId;
+    this.projectId = projectId;
+    this.model = model;
+    this.dimensions = dimensions;
+    this.encodingFormat = encodingFormat;
+  }
+
+  public Single<List<EmbeddingTokenCount>> infer(List<String> inputs) {
+    var body = new JsonObject()
+      .put("model", model)
+      .put("input", new JsonArray(new ArrayList<>(inputs)));
+    if (dimensions != null) body.put("dimensions", dimensions);
+    if (encodingFormat != null) {
+      body.put("encoding_format", encodingFormat.toLowerCase(Locale.ROOT));
+    }
+
+    var request = client
+      .client()
+      .postAbs(endpoint)
+      .putHeader("Authorization", "Bearer " + apiKey);
+    if (organizationId != null) {
+      request.putHeader("OpenAI-Organization", organizationId);
+    }
+    if (projectId != null) {
+      request.putHeader("OpenAI-Project", projectId);
+    }
+
+    return request
+      .rxSendJsonObject(body)
+      .map(response -> {
+        var throttleMillis = throttleMillis(response::getHeader);
+        if (throttleMillis > 0) {
+          throttleListener.accept(throttleMillis);
+        }
+        return toEmbeddings(response, inputs, throttleMillis);
+      });
+  }
+
+  /**
+   * @param listener given how long to wait in ms before calling the upstream
+   * again, when a response asks to
+   */
+  public void setThrottleListener(LongConsumer listener) {
+    this.throttleListener = listener;
+  }
+
+  public void close() {
+    client.release();
+  }
+
+  private static List<EmbeddingTokenCount> toEmbeddings(
+    HttpResponse<?> response,
+    List<String> inputs,
+    long throttleMillis
+  ) {
+    if (response.statusCode() >= 400) {
+      throw new UpstreamException(
+        response.statusCode(),
+        String.format(
+          "Embedding request failed with status %d: %s",
+          response.statusCode(),
+          response.bodyAsString()
+        ),
+        throttleMillis
+      );
+    }
+    var json = response.bodyAsJsonObject();
+    var data = json.getJsonArray("data", new JsonArray());
+    if (data.size() != inputs.size()) {
+      throw invalidResponse(
+        String.format(
+          "Expected %d embeddings but received %d",
+          inputs.size(),
+          data.size()
+        )
+      );
+    }
+
+    // Every input gets exactly one embedding, as the entries hold their index
+    var vectors = new float[inputs.size()][];
+    for (int i = 0; i < data.size(); i++) {
+      var entry = data.getJsonObject(i);
+      int index = entry.getInteger("index", i);
+      if (index < 0 || index >= vectors.length || vectors[index] != null) {
+        throw invalidResponse(
+          String.format("Unexpected embedding index %d", index)
+        );
+      }
+      vectors[index] = toVector(entry.getValue("embedding"));
+    }
+
+    var usage = json.getJsonObject("usage", new JsonObject());
+    var tokens = splitTokens(usage.getInteger("prompt_tokens", 0), inputs);
+    var embeddings = new ArrayList<EmbeddingTokenCount>(inputs.size());
+    for (int i = 0; i < vectors.length; i++) {
+      embeddings.add(new EmbeddingTokenCount(vectors[i], tokens[i]));
+    }
+    return embeddings;
+  }
+
+  private static UpstreamException invalidResponse(String message) {
+    return new UpstreamException(502, "Invalid embedding response: " + message);
+  }
+
+  private static float[] toVector(Object embedding) {
+    if (embedding instanceof String base64) {
+      var buffer = ByteBuffer.wrap(Base64.getDecoder().decode(base64))
+        .order(ByteOrder.LITTLE_ENDIAN)
+        .asFloatBuffer();
+      var vector = new float[buffer.remaining()];
+      buffer.get(vector);
+      return vector;
+    }
+    var values = (JsonArray) embedding;
+    var vector = new float[values.size()];
+    for (int i = 0; i < vector.length; i++) {
+      vector[i] = ((Number) values.getValue(i)).floatValue();
+    }
+    return vector;
+  }
+
+  static int[] splitTokens(int total, List<String> inputs) {
+    var tokens = new int[inputs.size()];
+    long length = inputs.stream().mapToLong(String::length).sum();
+    int assigned = 0;
+    for (int i = 0; i < tokens.length && length > 0; i++) {
+      tokens[i] = (int) (((long) total * inputs.get(i).length()) / length);
+      assigned += tokens[i];
+    }
+    if (tokens.length > 0) {
+      tokens[tokens.length - 1] += total - assigned;
+    }
+    return tokens;
+  }
+
+  /**
+   * @return how long the response asks to wait before the next call in ms,
+   * {@code 0} when it does not
+   */
+  static long throttleMillis(Function<String, String> headers) {
+    var retryAfterMs = headers.apply("retry-after-ms");
+    if (retryAfterMs != null) {
+      return parseLong(retryAfterMs);
+    }
+    var retryAfter = headers.apply("retry-after");
+    if (retryAfter != null) {
+      return retryAfterMillis(retryAfter);
+    }
+    long wait = 0;
+    for (var quota : List.of("requests", "tokens")) {
+      if ("0".equals(headers.apply("x-ratelimit-remaining-" + quota))) {
+        wait = Math.max(
+          wait,
+          durationMillis(headers.apply("x-ratelimit-reset-" + quota))
+        );
+      }
+    }
+    return wait;
+  }
+
+  /**
+   * The {@code Retry-After} header holds either seconds or an HTTP date.
+   */
+  private static long retryAfterMillis(String value) {
+    try {
+      return Math.max(0, (long) (Double.parseDouble(value) * 1_000));
+    } catch (NumberFormatException e) {
+      try {
+        var date = ZonedDateTime.parse(
+          value,
+          DateTimeFormatter.RFC_1123_DATE_TIME
+        );
+        return Math.max(
+          0,
+          Duration.between(ZonedDateTime.now(), date).toMillis()
+        );
+      } catch (DateTimeParseException ignored) {
+        return 0;
+      }
+    }
+  }
+
+  private static long durationMillis(String value) {
+    if (value == null) {
+      return 0;
+    }
+    double millis = 0;
+    var matcher = DURATION_PART.matcher(value);
+    while (matcher.find()) {
+      var amount = Double.parseDouble(matcher.group(1));
+      millis += switch (matcher.group(2)) {
+        case "h" -> amount * 3_600_000;
+        case "m" -> amount * 60_000;
+        case "s" -> amount * 1_000;
+        default -> amount;
+      };
+    }
+    return (long) Math.ceil(millis);
+  }
+
+  private static long parseLong(String value) {
+    try {
+      return Math.max(0, Long.parseLong(value.trim()));
+    } catch (NumberFormatException e) {
+      return 0;
+    }
+  }
+}
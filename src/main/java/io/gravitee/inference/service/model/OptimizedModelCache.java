@@ -0,0 +1,172 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.inference.service.model;
+
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession.SessionOptions;
+import ai.onnxruntime.OrtSession.SessionOptions.OptLevel;
+import io.gravitee.inference.service.repository.ModelKeys;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.UUID;
+import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Models optimised by ONNX Runtime, saved in a {@code .optimized} directory
+ * next to the model file, so that the sessions of the model, its replicas
+ * and restarts load a graph already optimised.
+ * <p>
+ * A model is optimised by an ONNX Runtime session created and closed for this
+ * purpose only, which saves the graph it optimised. Only the extended
+ * optimisations are saved: the layout optimisations of {@link OptLevel#ALL_OPT}
+ * depend on the instruction set of the CPU, and the saved graph may be loaded
+ * by another node sharing the models directory. Optimised graphs may
+ * still be specific to the ONNX Runtime version and the platform, so a saved
+ * model is keyed by them, the optimisation level and the digest of the model
+ * file. A saved model that fails to load is deleted, and the original model is
+ * loaded instead.
+ * <p>
+ * The model library creates its sessions with the ONNX Runtime defaults, so
+ * the saved graph is optimised again when loaded: this skips the optimisations
+ * already applied, it does not skip the optimisation pass itself.
+ * <p>
+ * Saved models are not blobs of the {@code BlobStore}, so they are outside its
+ * quota. One is saved per model file and ONNX Runtime version, and is deleted
+ * with the model directory.
+ *
+ * @author GraviteeSource Team
+ */
+public final class OptimizedModelCache {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(
+    OptimizedModelCache.class
+  );
+
+  static final String DIRECTORY = ".optimized";
+  static final String EXTENSION = ".onnx";
+  static final OptLevel OPTIMIZATION_LEVEL = OptLevel.EXTENDED_OPT;
+
+  private OptimizedModelCache() {}
+
+  /**
+   * Loads the model with the given function, from its optimised graph, which
+   * is saved first when it is not yet.
+   *
+   * @param load creates the session of the model at the given path
+   */
+  public static <T> T load(Path model, Function<Path, T> load) {
+    var optimized = path(model);
+    if (
+      optimized != null &&
+      (Files.isRegularFile(optimized) || optimize(model, optimized))
+    ) {
+      try {
+        return load.apply(optimized);
+      } catch (RuntimeException e) {
+        LOGGER.warn(
+          "Failed to load {}, loading {} instead",
+          optimized,
+          model,
+          e
+        );
+        deleteIfExists(optimized);
+      }
+    }
+    return load.apply(model);
+  }
+
+  /**
+   * Creates a session of the model saving its optimised graph, through a
+   * temporary file moved in place once complete.
+   *
+   * @return whether the optimised graph was saved
+   */
+  static boolean optimize(Path model, Path optimized) {
+    var part = optimized.resolveSibling(
+      optimized.getFileName() + "." + UUID.randomUUID()
+    );
+    try (var options = new SessionOptions()) {
+      options.setOptimizationLevel(OPTIMIZATION_LEVEL);
+      options.setOptimizedModelFilePath(part.toString());
+      // The graph is saved when the session is created
+      OrtEnvironment.getEnvironment()
+        .createSession(model.toString(), options)
+        .close();
+    } catch (OrtException | RuntimeException e) {
+      LOGGER.debug("Failed to optimize {}", model, e);
+      deleteIfExists(part);
+      return false;
+    }
+    if (!Files.isRegularFile(part)) {
+      LOGGER.debug("The optimized {} was not saved", model);
+      return false;
+    }
+    try {
+      Files.move(
+        part,
+        optimized,
+        StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE
+      );
+      LOGGER.debug("Saved the optimized {} to {}", model, optimized);
+      return true;
+    } catch (IOException e) {
+      LOGGER.warn("Failed to save the optimized {}", model, e);
+      deleteIfExists(part);
+      return false;
+    }
+  }
+
+  /**
+   * @return where the optimised graph of the model is saved, or {@code null}
+   * when it is not
+   */
+  static Path path(Path model) {
+    try {
+      var key = String.join(
+        "\n",
+        OrtEnvironment.getEnvironment().getVersion(),
+        System.getProperty("os.name"),
+        System.getProperty("os.arch"),
+        OPTIMIZATION_LEVEL.name(),
+        ModelKeys.sha256(model)
+      );
+      var directory = Files.createDirectories(
+        model.toAbsolutePath().resolveSibling(DIRECTORY)
+      );
+      return directory.resolve(
+        ModelKeys.sha256(key.getBytes(StandardCharsets.UTF_8)) + EXTENSION
+      );
+    } catch (IOException e) {
+      LOGGER.warn("Cannot save the optimized {}", model, e);
+      return null;
+    }
+  }
+
+  private static void deleteIfExists(Path path) {
+    try {
+      Files.deleteIfExists(path);
+    } catch (IOException e) {
+      LOGGER.debug("Failed to delete {}", path, e);
+    }
+  }
+}
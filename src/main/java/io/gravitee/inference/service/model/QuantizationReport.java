@@ -0,0 +1,94 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.inference.service.model;
+
+import io.gravitee.inference.api.classifier.ClassifierResult;
+import io.gravitee.inference.api.classifier.ClassifierResults;
+import io.gravitee.inference.api.embedding.EmbeddingTokenCount;
+import java.util.List;
+
+/**
+ * How close the outputs of a quantized model are to the ones of its original
+ * model on a set of samples: the cosine similarity of embeddings, or whether
+ * classifiers give the same labels.
+ *
+ * @author GraviteeSource Team
+ */
+public record QuantizationReport(
+  int samples,
+  double meanSimilarity,
+  double minSimilarity
+) {
+  public static QuantizationReport compare(
+    List<?> originalOutputs,
+    List<?> quantizedOutputs
+  ) {
+    if (originalOutputs.size() != quantizedOutputs.size()) {
+      throw new IllegalArgumentException("Outputs of different sample sets");
+    }
+    double sum = 0;
+    double min = 1;
+    for (int i = 0; i < originalOutputs.size(); i++) {
+      var similarity = similarity(
+        originalOutputs.get(i),
+        quantizedOutputs.get(i)
+      );
+      sum += similarity;
+      min = Math.min(min, similarity);
+    }
+    var samples = originalOutputs.size();
+    return new QuantizationReport(
+      samples,
+      samples == 0 ? 1 : sum / samples,
+      min
+    );
+  }
+
+  private static double similarity(Object original, Object quantized) {
+    if (
+      original instanceof EmbeddingTokenCount a &&
+      quantized instanceof EmbeddingTokenCount b
+    ) {
+      return cosine(a.embedding(), b.embedding());
+    }
+    if (
+      original instanceof ClassifierResults a &&
+      quantized instanceof ClassifierResults b
+    ) {
+      return labels(a).equals(labels(b)) ? 1 : 0;
+    }
+    return original.equals(quantized) ? 1 : 0;
+  }
+
+  private static double cosine(float[] a, float[] b) {
+    if (a.length != b.length) {
+      return 0;
+    }
+    double dot = 0;
+    double normA = 0;
+    double normB = 0;
+    for (int i = 0; i < a.length; i++) {
+      dot += (double) a[i] * b[i];
+      normA += (double) a[i] * a[i];
+      normB += (double) b[i] * b[i];
+    }
+    return normA == 0 || normB == 0 ? 0 : dot / Math.sqrt(normA * normB);
+  }
+
+  private static List<String> labels(ClassifierResults results) {
+    return results.results().stream().map(ClassifierResult::label).toList();
+  }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.inference.service.model;
+
+import io.gravitee.inference.service.handler.config.HttpClientConfig;
+import io.vertx.rxjava3.core.Vertx;
+import io.vertx.rxjava3.ext.web.client.WebClient;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Clients of remote models, shared by every model calling the same host with
+ * the same {@link HttpClientConfig}, so that they share a connection pool and
+ * TLS sessions. A client is closed once no model uses it anymore.
+ *
+ * @author GraviteeSource Team
+ */
+public class RemoteClients {
+
+  private final Vertx vertx;
+  private final Map<ClientKey, SharedClient> clients = new HashMap<>();
+
+  public RemoteClients(Vertx vertx) {
+    this.vertx = vertx;
+  }
+
+  /**
+   * @return the client of the host of the URI, to be released by the caller
+   */
+  public synchronized SharedClient acquire(URI uri, HttpClientConfig config) {
+    var ssl = "https".equalsIgnoreCase(uri.getScheme());
+    var key = new ClientKey(
+      uri.getHost().toLowerCase(Locale.ROOT),
+      uri.getPort() > 0 ? uri.getPort() : ssl ? 443 : 80,
+      ssl,
+      config
+    );
+    var client = clients.computeIfAbsent(key, __ ->
+      new SharedClient(
+        key,
+        WebClient.create(
+          vertx,
+          config.toWebClientOptions(ssl),
+          config.toPoolOptions()
+        )
+      )
+    );
+    client.references++;
+    return client;
+  }
+
+  synchronized int size() {
+    return clients.size();
+  }
+
+  private synchronized void release(SharedClient client) {
+    if (--client.references == 0) {
+      clients.remove(client.key);
+      client.client.close();
+    }
+  }
+
+  private record ClientKey(
+    String host,
+    int port,
+    boolean ssl,
+    HttpClientConfig config
+  ) {}
+
+  /**
+   * A reference to a shared client.
+   */
+  public final class SharedClient {
+
+    private final ClientKey key;
+    private final WebClient client;
+    // Guarded by the enclosing RemoteClients
+    private int references;
+
+    private SharedClient(ClientKey key, WebClient client) {
+      this.key = key;
+      this.client = client;
+    }
+
+    public WebClient client() {
+      return client;
+    }
+
+    public void release() {
+      RemoteClients.this.release(this);
+    }
+  }
+}
@@ -26,7 +26,9 @@ import io.gravitee.inference.rest.http.embedding.HttpEmbeddingConfig;
 import io.gravitee.inference.rest.http.embedding.HttpEmbeddingInference;
 import io.gravitee.inference.rest.openai.embedding.OpenAIEmbeddingConfig;
 import io.gravitee.inference.rest.openai.embedding.OpenaiEmbeddingInference;
+import io.gravitee.inference.service.handler.config.HttpClientConfig;
 import io.vertx.rxjava3.core.Vertx;
+import java.net.URI;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -47,6 +49,7 @@ public class RemoteModelFactory
   public static final String OPENAI_MODEL = "model";
   public static final String OPENAI_PROJECT_ID = "projectId";
   public static final String OPENAI_ORGANIZATION_ID = "organizationId";
+  public static final String OPENAI_ENCODING_FORMAT = "encodingFormat";
   public static final String HTTP_METHOD = "method";
   public static final String HTTP_HEADERS = "headers";
   public static final String HTTP_REQUEST_BODY_TEMPLATE = "requestBodyTemplate";
@@ -55,9 +58,11 @@ public class RemoteModelFactory
     "outputEmbeddingLocation";
 
   private final Vertx vertx;
+  private final RemoteClients clients;
 
   public RemoteModelFactory(Vertx vertx) {
     this.vertx = vertx;
+    this.clients = new RemoteClients(vertx);
   }
 
   public RestInference<?, ?, ?> build(ConfigWrapper config) {
@@ -82,6 +87,33 @@ public class RemoteModelFactory
     };
   }
 
+  /**
+   * Builds the inference used for batch INFER requests, when the upstream API
+   * accepts several inputs in one call. It runs on the client shared by the
+   * models calling the same host, configured by {@link HttpClientConfig}.
+   *
+   * @return the batch inference, or {@code null} when the format has none
+   */
+  public OpenAIBatchEmbeddingInference buildBatch(ConfigWrapper config) {
+    InferenceFormat format = InferenceFormat.valueOf(
+      config.get(INFERENCE_FORMAT)
+    );
+    if (format != InferenceFormat.OPENAI) {
+      return null;
+    }
+    URI uri = config.get(URI);
+    return new OpenAIBatchEmbeddingInference(
+      uri,
+      config.get(OPENAI_API_KEY),
+      config.get(OPENAI_ORGANIZATION_ID),
+      config.get(OPENAI_PROJECT_ID),
+      config.get(OPENAI_MODEL),
+      config.get(OPENAI_DIMENSIONS),
+      config.get(OPENAI_ENCODING_FORMAT),
+      clients.acquire(uri, HttpClientConfig.fromConfig(config))
+    );
+  }
+
   private HttpEmbeddingInference createHttpEmbeddingInference(
     ConfigWrapper config
   ) {
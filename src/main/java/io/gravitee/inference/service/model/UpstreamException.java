@@ -0,0 +1,55 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.inference.service.model;
+
+/**
+ * A failure status returned by the upstream API of a remote model.
+ *
+ * @author GraviteeSource Team
+ */
+public class UpstreamException extends RuntimeException {
+
+  private static final long serialVersionUID = 1L;
+
+  private final int statusCode;
+  private final long retryAfterMillis;
+
+  public UpstreamException(int statusCode, String message) {
+    this(statusCode, message, 0);
+  }
+
+  /**
+   * @param retryAfterMillis how long the upstream asked to wait before calling
+   * it again, {@code 0} when it did not
+   */
+  public UpstreamException(
+    int statusCode,
+    String message,
+    long retryAfterMillis
+  ) {
+    super(message);
+    this.statusCode = statusCode;
+    this.retryAfterMillis = retryAfterMillis;
+  }
+
+  public int statusCode() {
+    return statusCode;
+  }
+
+  public long retryAfterMillis() {
+    return retryAfterMillis;
+  }
+}
@@ -25,12 +25,18 @@ import io.gravitee.inference.api.utils.ConfigWrapper;
 import io.gravitee.inference.rest.http.embedding.HttpEmbeddingConfig;
 import io.gravitee.inference.service.handler.InferenceHandler;
 import io.gravitee.inference.service.handler.RemoteInferenceHandler;
+import io.gravitee.inference.service.handler.config.CircuitBreakerConfig;
+import io.gravitee.inference.service.handler.config.EmbeddingStoreConfig;
+import io.gravitee.inference.service.handler.config.UpstreamConfig;
+import io.gravitee.inference.service.handler.config.WarmupConfig;
 import io.gravitee.inference.service.model.RemoteModelFactory;
 import io.gravitee.inference.service.repository.HandlerRepository;
 import io.reactivex.rxjava3.core.Single;
 import io.vertx.core.http.HttpMethod;
+import io.vertx.rxjava3.core.RxHelper;
 import io.vertx.rxjava3.core.Vertx;
 import java.net.URI;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
 import org.slf4j.Logger;
@@ -46,9 +52,13 @@ public class HttpProvider implements InferenceHandlerProvider {
   static final String OUTPUT_EMBEDDING_LOCATION = "outputEmbeddingLocation";
 
   private final RemoteModelFactory modelFactory;
+  private final Path storeRoot;
+  private final Vertx vertx;
 
-  HttpProvider(Vertx vertx) {
+  HttpProvider(Vertx vertx, Path storeRoot) {
     this.modelFactory = new RemoteModelFactory(vertx);
+    this.storeRoot = storeRoot;
+    this.vertx = vertx;
   }
 
   @Override
@@ -58,9 +68,13 @@ public class HttpProvider implements InferenceHandlerProvider {
   ) {
     return Single.just(inferenceRequest)
       .map(this::requestToConfigToMap)
-      .map(map ->
-        repository.add(new RemoteInferenceHandler(map, modelFactory))
-      );
+      .flatMap(map ->
+        repository.add(
+          new RemoteInferenceHandler(map, modelFactory, storeRoot, vertx)
+        )
+      )
+      // Loading the model opens its embedding store
+      .subscribeOn(RxHelper.blockingScheduler(vertx));
   }
 
   Map<String, Object> requestToConfigToMap(InferenceRequest request) {
@@ -76,24 +90,35 @@ public class HttpProvider implements InferenceHandlerProvider {
       wrapper.get(OUTPUT_EMBEDDING_LOCATION)
     );
 
-    return Map.of(
-      URI,
-      config.getUri(),
-      METHOD,
-      config.getMethod(),
-      HEADERS,
-      config.getHeaders(),
-      REQUEST_BODY_TEMPLATE,
-      config.getRequestBodyTemplate(),
-      INPUT_LOCATION,
-      config.getInputLocation(),
-      OUTPUT_EMBEDDING_LOCATION,
-      config.getOutputEmbeddingLocation(),
-      INFERENCE_FORMAT,
-      wrapper.get(INFERENCE_FORMAT),
-      INFERENCE_TYPE,
-      wrapper.get(INFERENCE_TYPE)
+    var map = new HashMap<String, Object>(
+      Map.of(
+        URI,
+        config.getUri(),
+        METHOD,
+        config.getMethod(),
+        HEADERS,
+        config.getHeaders(),
+        REQUEST_BODY_TEMPLATE,
+        config.getRequestBodyTemplate(),
+        INPUT_LOCATION,
+        config.getInputLocation(),
+        OUTPUT_EMBEDDING_LOCATION,
+        config.getOutputEmbeddingLocation(),
+        INFERENCE_FORMAT,
+        wrapper.get(INFERENCE_FORMAT),
+        INFERENCE_TYPE,
+        wrapper.get(INFERENCE_TYPE)
+      )
     );
+    InferenceHandlerProvider.copyKeys(payload, map, EmbeddingStoreConfig.KEYS);
+    InferenceHandlerProvider.copyKeys(payload, map, WarmupConfig.KEYS);
+    InferenceHandlerProvider.copyKeys(payload, map, UpstreamConfig.KEYS);
+    InferenceHandlerProvider.copyKeys(
+      payload,
+      map,
+      CircuitBreakerConfig.KEYS
+    );
+    return map;
   }
 
   private static Map<String, String> parseHeaders(
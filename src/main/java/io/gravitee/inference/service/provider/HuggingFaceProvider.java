@@ -24,13 +24,15 @@ import io.gravitee.inference.api.service.InferenceRequest;
 import io.gravitee.inference.api.utils.ConfigWrapper;
 import io.gravitee.inference.service.handler.InferenceHandler;
 import io.gravitee.inference.service.handler.LocalInferenceHandler;
+import io.gravitee.inference.service.handler.config.QuantizationConfig;
 import io.gravitee.inference.service.model.LocalModelFactory;
+import io.gravitee.inference.service.provider.config.DownloadConfig;
+import io.gravitee.inference.service.provider.download.BlobStore;
+import io.gravitee.inference.service.provider.download.ChunkedModelFetcher;
 import io.gravitee.inference.service.repository.HandlerRepository;
 import io.gravitee.reactive.webclient.api.FetchModelConfig;
-import io.gravitee.reactive.webclient.api.ModelFetcher;
 import io.gravitee.reactive.webclient.api.ModelFile;
 import io.gravitee.reactive.webclient.api.ModelFileType;
-import io.gravitee.reactive.webclient.huggingface.downloader.HuggingFaceDownloader;
 import io.reactivex.rxjava3.core.Single;
 import io.vertx.rxjava3.core.RxHelper;
 import io.vertx.rxjava3.core.Vertx;
@@ -54,13 +56,30 @@ public class HuggingFaceProvider implements InferenceHandlerProvider {
 
   private final Vertx vertx;
   private final String modelPath;
-  private final ModelFetcher modelFetcher;
+  private final ChunkedModelFetcher modelFetcher;
   private final LocalModelFactory modelFactory;
 
-  public HuggingFaceProvider(Vertx vertx, String modelPath) {
+  public HuggingFaceProvider(
+    Vertx vertx,
+    String modelPath,
+    BlobStore blobStore
+  ) {
+    this(vertx, modelPath, DownloadConfig.defaults(), blobStore);
+  }
+
+  public HuggingFaceProvider(
+    Vertx vertx,
+    String modelPath,
+    DownloadConfig downloadConfig,
+    BlobStore blobStore
+  ) {
     this.vertx = vertx;
     this.modelPath = modelPath;
-    this.modelFetcher = new HuggingFaceDownloader(vertx);
+    this.modelFetcher = new ChunkedModelFetcher(
+      vertx,
+      downloadConfig,
+      blobStore
+    );
     this.modelFactory = new LocalModelFactory();
   }
 
@@ -70,20 +89,77 @@ public class HuggingFaceProvider implements InferenceHandlerProvider {
     HandlerRepository repository
   ) {
     LOGGER.debug("loadModel({})", inferenceRequest);
-    return fetchModelFiles(inferenceRequest)
+    var quantization = QuantizationConfig.fromPayload(
+      inferenceRequest.payload(),
+      new ConfigWrapper(inferenceRequest.payload()).get(MODEL_PATH)
+    );
+    var fetchConfig = getModelFetchConfiguration(inferenceRequest);
+    return fetchModelFiles(quantized(fetchConfig, quantization))
       .map(modelFiles ->
         createModelPayload(inferenceRequest.payload(), modelFiles)
       )
-      .map(payload ->
+      .flatMap(payload ->
+        quantization.isMeasured()
+          ? fetchModelFiles(original(fetchConfig)).map(modelFiles -> {
+            payload.put(
+              QuantizationConfig.QUANTIZATION_REFERENCE_PATH,
+              modelFiles.get(ModelFileType.MODEL)
+            );
+            return payload;
+          })
+          : Single.just(payload)
+      )
+      .flatMap(payload ->
         repository.add(new LocalInferenceHandler(payload, modelFactory))
       );
   }
 
+  /**
+   * @return the config fetching the quantized variant of the model instead of
+   * the original one, when quantization is enabled
+   */
+  private static FetchModelConfig quantized(
+    FetchModelConfig fetchConfig,
+    QuantizationConfig quantization
+  ) {
+    if (!quantization.isEnabled()) {
+      return fetchConfig;
+    }
+    return new FetchModelConfig(
+      fetchConfig.modelName(),
+      fetchConfig
+        .modelFiles()
+        .stream()
+        .map(file ->
+          file.type() == ModelFileType.MODEL
+            ? new ModelFile(quantization.modelPath(), ModelFileType.MODEL)
+            : file
+        )
+        .toList(),
+      fetchConfig.outputDirectory()
+    );
+  }
+
+  /**
+   * @return the config fetching only the original model
+   */
+  private static FetchModelConfig original(FetchModelConfig fetchConfig) {
+    return new FetchModelConfig(
+      fetchConfig.modelName(),
+      fetchConfig
+        .modelFiles()
+        .stream()
+        .filter(file -> file.type() == ModelFileType.MODEL)
+        .toList(),
+      fetchConfig.outputDirectory()
+    );
+  }
+
   private Single<Map<ModelFileType, String>> fetchModelFiles(
-    InferenceRequest request
+    FetchModelConfig fetchConfig
   ) {
     return modelFetcher
-      .fetchModel(getModelFetchConfiguration(request))
+      .fetchModel(fetchConfig)
       .subscribeOn(RxHelper.blockingScheduler(vertx))
       .observeOn(RxHelper.blockingScheduler(vertx));
   }
@@ -144,4 +220,9 @@ public class HuggingFaceProvider implements InferenceHandlerProvider {
       throw new RuntimeException(ex);
     }
   }
+
+  @Override
+  public void close() {
+    modelFetcher.close();
+  }
 }
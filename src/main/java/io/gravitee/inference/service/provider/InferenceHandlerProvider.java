@@ -19,10 +19,33 @@ import io.gravitee.inference.api.service.InferenceRequest;
 import io.gravitee.inference.service.handler.InferenceHandler;
 import io.gravitee.inference.service.repository.HandlerRepository;
 import io.reactivex.rxjava3.core.Single;
+import java.util.List;
+import java.util.Map;
 
 public interface InferenceHandlerProvider {
   Single<InferenceHandler> provide(
     InferenceRequest inferenceRequest,
     HandlerRepository repository
   );
+
+  /**
+   * Releases the resources of the provider, such as its HTTP clients.
+   */
+  default void close() {}
+
+  /**
+   * Copies the given optional keys of the START payload, when present, into
+   * the payload of a handler.
+   */
+  static void copyKeys(
+    Map<String, Object> source,
+    Map<String, Object> target,
+    List<String> keys
+  ) {
+    keys.forEach(key -> {
+      if (source.containsKey(key)) {
+        target.put(key, source.get(key));
+      }
+    });
+  }
 }
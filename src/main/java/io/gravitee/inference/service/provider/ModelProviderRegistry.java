@@ -16,31 +16,120 @@
 package io.gravitee.inference.service.provider;
 
 import io.gravitee.inference.api.service.InferenceFormat;
+import io.gravitee.inference.service.cache.EmbeddingStore;
+import io.gravitee.inference.service.provider.config.DownloadConfig;
+import io.gravitee.inference.service.provider.download.BlobStore;
+import io.reactivex.rxjava3.core.Completable;
+import io.vertx.rxjava3.core.RxHelper;
 import io.vertx.rxjava3.core.Vertx;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.EnumMap;
 import java.util.Map;
 import java.util.Optional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class ModelProviderRegistry {
 
+  private static final Logger LOGGER = LoggerFactory.getLogger(
+    ModelProviderRegistry.class
+  );
+
+  static final String EMBEDDING_STORE_DIRECTORY = ".embeddings";
+  static final String BLOB_STORE_DIRECTORY = ".blobs";
+
   private final Map<InferenceFormat, InferenceHandlerProvider> providers =
     new EnumMap<>(InferenceFormat.class);
   private final Vertx vertx;
   private final String modelPath;
+  private final long diskQuota;
+  private final long storeRetention;
+  private final DownloadConfig downloadConfig;
 
   public ModelProviderRegistry(Vertx vertx, String modelPath) {
+    this(vertx, modelPath, 0);
+  }
+
+  /**
+   * @param diskQuota the size of the stored model files beyond which the ones
+   * no model uses anymore are deleted, {@code 0} for no quota
+   */
+  public ModelProviderRegistry(Vertx vertx, String modelPath, long diskQuota) {
+    this(vertx, modelPath, diskQuota, 0);
+  }
+
+  /**
+   * @param storeRetention how long the embedding store of a remote model is
+   * kept once no model uses it, in ms, {@code 0} to keep it
+   */
+  public ModelProviderRegistry(
+    Vertx vertx,
+    String modelPath,
+    long diskQuota,
+    long storeRetention
+  ) {
+    this(
+      vertx,
+      modelPath,
+      diskQuota,
+      storeRetention,
+      DownloadConfig.defaults()
+    );
+  }
+
+  /**
+   * @param downloadConfig the hub local models are downloaded from
+   */
+  public ModelProviderRegistry(
+    Vertx vertx,
+    String modelPath,
+    long diskQuota,
+    long storeRetention,
+    DownloadConfig downloadConfig
+  ) {
     this.vertx = vertx;
     this.modelPath = modelPath;
+    this.diskQuota = diskQuota;
+    this.storeRetention = storeRetention;
+    this.downloadConfig = downloadConfig;
     initializeProviders();
   }
 
   private void initializeProviders() {
     providers.put(
       InferenceFormat.ONNX_BERT,
-      new HuggingFaceProvider(vertx, modelPath)
+      new HuggingFaceProvider(
+        vertx,
+        modelPath,
+        downloadConfig,
+        new BlobStore(Path.of(modelPath, BLOB_STORE_DIRECTORY), diskQuota)
+      )
+    );
+    var storeRoot = Path.of(modelPath, EMBEDDING_STORE_DIRECTORY);
+    providers.put(InferenceFormat.HTTP, new HttpProvider(vertx, storeRoot));
+    providers.put(
+      InferenceFormat.OPENAI,
+      new OpenAIProvider(vertx, storeRoot)
     );
-    providers.put(InferenceFormat.HTTP, new HttpProvider(vertx));
-    providers.put(InferenceFormat.OPENAI, new OpenAIProvider(vertx));
+    if (storeRetention > 0) {
+      collectStores(storeRoot);
+    }
+  }
+
+  /**
+   * Deletes the embedding stores left behind by models that changed their
+   * settings or are not used anymore.
+   */
+  private void collectStores(Path storeRoot) {
+    Completable.fromRunnable(() ->
+      EmbeddingStore.collect(storeRoot, Duration.ofMillis(storeRetention))
+    )
+      .subscribeOn(RxHelper.blockingScheduler(vertx))
+      .subscribe(
+        () -> {},
+        error -> LOGGER.warn("Failed to collect embedding stores", error)
+      );
   }
 
   public InferenceHandlerProvider getProvider(InferenceFormat format) {
@@ -50,4 +139,8 @@ public class ModelProviderRegistry {
       )
     );
   }
+
+  public void close() {
+    providers.values().forEach(InferenceHandlerProvider::close);
+  }
 }
@@ -23,18 +23,30 @@ import io.gravitee.inference.api.service.InferenceRequest;
 import io.gravitee.inference.api.service.InferenceType;
 import io.gravitee.inference.service.handler.InferenceHandler;
 import io.gravitee.inference.service.handler.RemoteInferenceHandler;
+import io.gravitee.inference.service.handler.config.CircuitBreakerConfig;
+import io.gravitee.inference.service.handler.config.EmbeddingStoreConfig;
+import io.gravitee.inference.service.handler.config.HttpClientConfig;
+import io.gravitee.inference.service.handler.config.RateLimitConfig;
+import io.gravitee.inference.service.handler.config.UpstreamConfig;
+import io.gravitee.inference.service.handler.config.WarmupConfig;
 import io.gravitee.inference.service.model.RemoteModelFactory;
 import io.gravitee.inference.service.provider.config.EmbeddingConfig;
 import io.gravitee.inference.service.repository.HandlerRepository;
 import io.reactivex.rxjava3.core.Single;
+import io.vertx.rxjava3.core.RxHelper;
 import io.vertx.rxjava3.core.Vertx;
+import java.nio.file.Path;
 
 public class OpenAIProvider implements InferenceHandlerProvider {
 
   private final RemoteModelFactory modelFactory;
+  private final Path storeRoot;
+  private final Vertx vertx;
 
-  public OpenAIProvider(Vertx vertx) {
+  public OpenAIProvider(Vertx vertx, Path storeRoot) {
     this.modelFactory = new RemoteModelFactory(vertx);
+    this.storeRoot = storeRoot;
+    this.vertx = vertx;
   }
 
   @Override
@@ -47,10 +59,41 @@ public class OpenAIProvider implements InferenceHandlerProvider {
         var config = EmbeddingConfig.fromInferenceRequest(request).toMap();
         config.put(INFERENCE_TYPE, request.payload().get(INFERENCE_TYPE));
         config.put(INFERENCE_FORMAT, request.payload().get(INFERENCE_FORMAT));
+        var payload = request.payload();
+        InferenceHandlerProvider.copyKeys(
+          payload,
+          config,
+          EmbeddingStoreConfig.KEYS
+        );
+        InferenceHandlerProvider.copyKeys(payload, config, WarmupConfig.KEYS);
+        InferenceHandlerProvider.copyKeys(
+          payload,
+          config,
+          HttpClientConfig.KEYS
+        );
+        InferenceHandlerProvider.copyKeys(
+          payload,
+          config,
+          UpstreamConfig.KEYS
+        );
+        InferenceHandlerProvider.copyKeys(
+          payload,
+          config,
+          CircuitBreakerConfig.KEYS
+        );
+        InferenceHandlerProvider.copyKeys(
+          payload,
+          config,
+          RateLimitConfig.KEYS
+        );
         return config;
       })
-      .map(map ->
-        repository.add(new RemoteInferenceHandler(map, modelFactory))
-      );
+      .flatMap(map ->
+        repository.add(
+          new RemoteInferenceHandler(map, modelFactory, storeRoot, vertx)
+        )
+      )
+      // Loading the model opens its embedding store
+      .subscribeOn(RxHelper.blockingScheduler(vertx));
   }
 }
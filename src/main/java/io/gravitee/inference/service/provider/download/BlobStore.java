@@ -0,0 +1,208 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.inference.service.provider.download;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Model files stored once by the SHA-256 of their content, under
+ * {@code sha256/<first two digits>/<digest>}, and hard linked into the
+ * directories of the models using them. The same weights used by several
+ * models, or fetched again after a restart, take disk space and download
+ * time once.
+ * <p>
+ * A blob is referenced while it has other links than its own. Unreferenced
+ * blobs are kept as a cache until the store exceeds its quota, and then
+ * deleted least recently used first. Where hard links are not supported,
+ * files are copied into the models and their blobs are only a cache.
+ *
+ * @author GraviteeSource Team
+ */
+public class BlobStore {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(
+    BlobStore.class
+  );
+
+  static final String ALGORITHM = "sha256";
+
+  private final Path root;
+  private final long maxBytes;
+
+  /**
+   * @param maxBytes the size of the store beyond which unreferenced blobs are
+   * deleted, {@code 0} for no quota
+   */
+  public BlobStore(Path root, long maxBytes) {
+    this.root = root;
+    this.maxBytes = maxBytes;
+  }
+
+  public Path path(String sha256) {
+    return root
+      .resolve(ALGORITHM)
+      .resolve(sha256.substring(0, 2))
+      .resolve(sha256);
+  }
+
+  /**
+   * Moves a verified file into the store, unless the store already has it,
+   * and links it at the target.
+   */
+  public synchronized void store(Path file, String sha256, Path target)
+    throws IOException {
+    var blob = path(sha256);
+    Files.createDirectories(blob.getParent());
+    try {
+      Files.move(file, blob, ATOMIC_MOVE);
+    } catch (FileAlreadyExistsException e) {
+      Files.delete(file);
+    }
+    link(blob, target);
+  }
+
+  /**
+   * Links the blob at the target, replacing the file there.
+   *
+   * @return {@code false} when the store does not have the blob
+   */
+  public synchronized boolean link(String sha256, Path target)
+    throws IOException {
+    var blob = path(sha256);
+    if (!Files.isRegularFile(blob)) {
+      return false;
+    }
+    link(blob, target);
+    return true;
+  }
+
+  /**
+   * @return whether the target is a link to the blob
+   */
+  public boolean isLinked(Path target, String sha256) {
+    try {
+      return Files.isSameFile(target, path(sha256));
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  private void link(Path blob, Path target) throws IOException {
+    var link = target.resolveSibling(
+      target.getFileName() + "." + UUID.randomUUID()
+    );
+    try {
+      Files.createLink(link, blob);
+    } catch (UnsupportedOperationException | IOException e) {
+      LOGGER.debug("Cannot link {}, copying it", blob, e);
+      Files.copy(blob, link, REPLACE_EXISTING);
+    }
+    Files.move(link, target, REPLACE_EXISTING, ATOMIC_MOVE);
+    // Orders the blobs by last use for the collection
+    Files.setLastModifiedTime(
+      blob,
+      FileTime.fromMillis(System.currentTimeMillis())
+    );
+  }
+
+  /**
+   * Deletes unreferenced blobs, least recently used first, until the store
+   * fits in its quota.
+   */
+  public synchronized void collect() {
+    if (maxBytes <= 0 || !Files.isDirectory(root.resolve(ALGORITHM))) {
+      return;
+    }
+    try {
+      var blobs = blobs();
+      var size = blobs.stream().mapToLong(Blob::size).sum();
+      var unreferenced = blobs
+        .stream()
+        .filter(blob -> !blob.referenced())
+        .sorted(Comparator.comparing(Blob::lastModified))
+        .toList();
+      for (var blob : unreferenced) {
+        if (size <= maxBytes) {
+          break;
+        }
+        try {
+          Files.delete(blob.path());
+          size -= blob.size();
+          LOGGER.debug("Deleted unreferenced blob {}", blob.path());
+        } catch (NoSuchFileException e) {
+          size -= blob.size();
+        }
+      }
+      if (size > maxBytes) {
+        LOGGER.warn(
+          "Model blobs take {} bytes, more than the {} bytes quota",
+          size,
+          maxBytes
+        );
+      }
+    } catch (IOException e) {
+      LOGGER.warn("Failed to collect unreferenced model blobs", e);
+    }
+  }
+
+  private List<Blob> blobs() throws IOException {
+    var blobs = new ArrayList<Blob>();
+    try (Stream<Path> paths = Files.walk(root.resolve(ALGORITHM), 2)) {
+      for (var path : paths.filter(Files::isRegularFile).toList()) {
+        blobs.add(
+          new Blob(
+            path,
+            Files.size(path),
+            Files.getLastModifiedTime(path),
+            isReferenced(path)
+          )
+        );
+      }
+    }
+    return blobs;
+  }
+
+  private static boolean isReferenced(Path blob) throws IOException {
+    try {
+      return ((Number) Files.getAttribute(blob, "unix:nlink")).intValue() > 1;
+    } catch (UnsupportedOperationException | IllegalArgumentException e) {
+      // Without link counts, blobs are never known to be unreferenced
+      return true;
+    }
+  }
+
+  private record Blob(
+    Path path,
+    long size,
+    FileTime lastModified,
+    boolean referenced
+  ) {}
+}
@@ -0,0 +1,490 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.inference.service.provider.download;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import io.gravitee.inference.service.provider.config.DownloadConfig;
+import io.gravitee.inference.service.repository.ModelKeys;
+import io.gravitee.reactive.webclient.api.FetchModelConfig;
+import io.gravitee.reactive.webclient.api.ModelFetcher;
+import io.gravitee.reactive.webclient.api.ModelFile;
+import io.gravitee.reactive.webclient.api.ModelFileType;
+import io.reactivex.rxjava3.core.Completable;
+import io.reactivex.rxjava3.core.Flowable;
+import io.reactivex.rxjava3.core.Single;
+import io.vertx.core.Future;
+import io.vertx.core.MultiMap;
+import io.vertx.core.file.FileProps;
+import io.vertx.core.file.OpenOptions;
+import io.vertx.core.http.HttpClientAgent;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpClientResponse;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.RequestOptions;
+import io.vertx.rxjava3.core.RxHelper;
+import io.vertx.rxjava3.core.Vertx;
+import io.vertx.rxjava3.core.http.HttpClient;
+import io.vertx.rxjava3.core.http.HttpClientRequest;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Fetches model files from a Hugging Face compatible hub.
+ * <p>
+ * The files of a model are fetched concurrently. A file larger than a chunk is
+ * fetched as ranges in parallel when the hub accepts ranges. Each range goes
+ * to its own part file, so an interrupted download resumes where it stopped.
+ * A file is checked against the SHA-256 published by the hub, when there is
+ * one, and moved into place only once complete.
+ * <p>
+ * Fetched files are kept in a {@link BlobStore} and linked into the model
+ * directory. A file whose SHA-256 is already in the store, under any model
+ * name, is linked without being fetched again.
+ * <p>
+ * The digest of every fetched file is kept next to it, in a {@code .sha256}
+ * file. A file still linked to, or matching, its digest is used without
+ * contacting the hub.
+ * <p>
+ * The access token of the hub is sent to the hub only, not to the hosts it
+ * redirects to.
+ *
+ * @author GraviteeSource Team
+ */
+public class ChunkedModelFetcher implements ModelFetcher {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(
+    ChunkedModelFetcher.class
+  );
+
+  static final String PART_SUFFIX = ".part";
+  static final String DIGEST_SUFFIX = ".sha256";
+
+  private static final Pattern SHA256 = Pattern.compile("[0-9a-f]{64}");
+
+  private final Vertx vertx;
+  private final HttpClient client;
+  private final DownloadConfig config;
+  private final BlobStore blobs;
+  // Fetches in progress by target file, shared by concurrent fetches
+  private final Map<Path, Single<Path>> fetches = new ConcurrentHashMap<>();
+
+  public ChunkedModelFetcher(Vertx vertx, BlobStore blobs) {
+    this(vertx, DownloadConfig.defaults(), blobs);
+  }
+
+  public ChunkedModelFetcher(
+    Vertx vertx,
+    DownloadConfig config,
+    BlobStore blobs
+  ) {
+    this.vertx = vertx;
+    this.client = HttpClient.newInstance(
+      vertx
+        .getDelegate()
+        .httpClientBuilder()
+        .with(new HttpClientOptions().setProxyOptions(config.proxyOptions()))
+        .withRedirectHandler(ChunkedModelFetcher::redirect)
+        .build()
+    );
+    this.config = config;
+    this.blobs = blobs;
+  }
+
+  @Override
+  public Single<Map<ModelFileType, String>> fetchModel(
+    FetchModelConfig fetchConfig
+  ) {
+    return Flowable.fromIterable(fetchConfig.modelFiles())
+      .flatMapSingle(file ->
+        fetch(fetchConfig, file).map(path ->
+          Map.entry(file.type(), path.toString())
+        )
+      )
+      .toMap(Map.Entry::getKey, Map.Entry::getValue)
+      .flatMap(files ->
+        blocking(() -> {
+          blobs.collect();
+          return files;
+        })
+      );
+  }
+
+  private Single<Path> fetch(FetchModelConfig fetchConfig, ModelFile file) {
+    var directory = fetchConfig.outputDirectory().normalize();
+    var target = directory.resolve(file.name()).normalize();
+    if (!target.startsWith(directory)) {
+      return Single.error(
+        new IllegalArgumentException("Invalid model file: " + file.name())
+      );
+    }
+    return fetches.computeIfAbsent(target, __ ->
+      fetch(fetchConfig, file, target)
+        .doFinally(() -> fetches.remove(target))
+        .cache()
+    );
+  }
+
+  private Single<Path> fetch(
+    FetchModelConfig fetchConfig,
+    ModelFile file,
+    Path target
+  ) {
+    var url = String.join(
+      "/",
+      config.baseUrl().replaceAll("/+$", ""),
+      fetchConfig.modelName(),
+      "resolve",
+      config.revision(),
+      file.name()
+    );
+    return blocking(() -> isPresent(target)).flatMap(present ->
+      present
+        ? Single.just(target)
+        : head(url).flatMap(remote ->
+          blocking(() -> reuse(target, remote)).flatMap(reused ->
+            reused ? Single.just(target) : download(url, target, remote)
+          )
+        )
+    );
+  }
+
+  /**
+   * @return whether the file is already there and matches its digest
+   */
+  private boolean isPresent(Path target) throws IOException {
+    Files.createDirectories(target.getParent());
+    var digestFile = withSuffix(target, DIGEST_SUFFIX);
+    if (!Files.isRegularFile(target) || !Files.isRegularFile(digestFile)) {
+      return false;
+    }
+    var digest = Files.readString(digestFile).trim();
+    if (
+      blobs.isLinked(target, digest) || ModelKeys.sha256(target).equals(digest)
+    ) {
+      LOGGER.debug("{} is already present", target);
+      return true;
+    }
+    LOGGER.debug("{} does not match its digest, fetching it again", target);
+    return false;
+  }
+
+  /**
+   * @return whether the file was linked from the blob store
+   */
+  private boolean reuse(Path target, RemoteFile remote) throws IOException {
+    if (remote.sha256() == null || !blobs.link(remote.sha256(), target)) {
+      return false;
+    }
+    Files.writeString(withSuffix(target, DIGEST_SUFFIX), remote.sha256());
+    LOGGER.debug("{} linked from the blob store", target);
+    return true;
+  }
+
+  private Single<RemoteFile> head(String url) {
+    var options = authorized(
+      new RequestOptions()
+        .setMethod(HttpMethod.HEAD)
+        .setAbsoluteURI(url)
+        .setFollowRedirects(false)
+    );
+    return client
+      .rxRequest(options)
+      .flatMap(HttpClientRequest::rxSend)
+      .map(response -> {
+        var status = response.statusCode();
+        if (status >= 300 && status < 400) {
+          // Large files are redirected to a CDN, the hub gives their metadata
+          return new RemoteFile(
+            size(response.getHeader("X-Linked-Size")),
+            sha256(response.getHeader("X-Linked-Etag")),
+            true
+          );
+        }
+        if (status >= 200 && status < 300) {
+          return new RemoteFile(
+            size(response.getHeader("Content-Length")),
+            sha256(response.getHeader("ETag")),
+            "bytes".equalsIgnoreCase(response.getHeader("Accept-Ranges"))
+          );
+        }
+        throw new IllegalStateException(
+          "Failed to fetch " + url + ": HTTP " + status
+        );
+      });
+  }
+
+  private Single<Path> download(String url, Path target, RemoteFile remote) {
+    var ranges = split(target, remote);
+    LOGGER.debug("Fetching {} in {} range(s)", url, ranges.size());
+    return Flowable.fromIterable(ranges)
+      .flatMapCompletable(
+        range ->
+          download(url, range, remote.acceptsRanges()).retry(config.retries()),
+        false,
+        config.parallelism()
+      )
+      .andThen(blocking(() -> complete(target, ranges, remote)));
+  }
+
+  private List<Range> split(Path target, RemoteFile remote) {
+    var part = withSuffix(target, PART_SUFFIX);
+    if (!remote.acceptsRanges() || remote.size() <= config.chunkBytes()) {
+      return List.of(new Range(part, 0, remote.size() - 1));
+    }
+    var ranges = new ArrayList<Range>();
+    for (long start = 0; start < remote.size(); start += config.chunkBytes()) {
+      var end = Math.min(start + config.chunkBytes(), remote.size()) - 1;
+      ranges.add(new Range(withSuffix(part, "-" + ranges.size()), start, end));
+    }
+    return ranges;
+  }
+
+  /**
+   * Appends the missing bytes of the range to its part file, or rewrites it
+   * when the hub does not accept ranges. A part holding more than its range,
+   * left by an earlier download of another version of the file, is deleted.
+   */
+  private Completable download(String url, Range range, boolean resumable) {
+    var fileOptions = new OpenOptions()
+      .setCreate(true)
+      .setAppend(resumable)
+      .setTruncateExisting(!resumable);
+    return Completable.defer(() ->
+      blocking(() -> discardOversized(range))
+        .flatMap(__ ->
+          vertx.fileSystem().rxOpen(range.part().toString(), fileOptions)
+        )
+        .flatMapCompletable(file ->
+          file
+            .rxSize()
+            .flatMapCompletable(existing -> {
+              if (existing == range.length()) {
+                return file.rxClose();
+              }
+              var options = authorized(
+                new RequestOptions()
+                  .setAbsoluteURI(url)
+                  .setFollowRedirects(true)
+              );
+              if (resumable) {
+                var from = range.start() + existing;
+                var to = range.end() < 0 ? "" : String.valueOf(range.end());
+                options.putHeader("Range", "bytes=" + from + "-" + to);
+              }
+              return client
+                .rxRequest(options)
+                .flatMap(HttpClientRequest::rxSend)
+                .flatMapCompletable(response -> {
+                  var status = response.statusCode();
+                  if (status == (resumable ? 206 : 200)) {
+                    return response.rxPipeTo(file);
+                  }
+                  var close = response
+                    .request()
+                    .rxReset()
+                    .onErrorComplete()
+                    .andThen(file.rxClose());
+                  // The part already holds the whole file of unknown size
+                  if (status == 416 && existing > 0 && range.length() < 0) {
+                    return close;
+                  }
+                  return close.andThen(
+                    Completable.error(
+                      new IllegalStateException(
+                        "Failed to fetch " + url + ": HTTP " + status
+                      )
+                    )
+                  );
+                })
+                .onErrorResumeNext(e ->
+                  file.rxClose().onErrorComplete().andThen(Completable.error(e))
+                );
+            })
+        )
+        .andThen(checkLength(url, range))
+    );
+  }
+
+  private static boolean discardOversized(Range range) throws IOException {
+    if (
+      range.length() >= 0 &&
+      Files.isRegularFile(range.part()) &&
+      Files.size(range.part()) > range.length()
+    ) {
+      LOGGER.debug("{} is larger than its range, fetching it again", range);
+      Files.delete(range.part());
+      return true;
+    }
+    return false;
+  }
+
+  private RequestOptions authorized(RequestOptions options) {
+    if (config.token() != null) {
+      options.putHeader(HttpHeaders.AUTHORIZATION, "Bearer " + config.token());
+    }
+    return options;
+  }
+
+  /**
+   * Follows redirects as Vert.x does, without sending the access token to
+   * another host.
+   */
+  private static Future<RequestOptions> redirect(HttpClientResponse response) {
+    var next = HttpClientAgent.DEFAULT_REDIRECT_HANDLER.apply(response);
+    if (next == null) {
+      return null;
+    }
+    var host = URI.create(response.request().absoluteURI()).getHost();
+    return next.map(options -> {
+      if (!options.getHost().equalsIgnoreCase(host)) {
+        options.setHeaders(
+          MultiMap.caseInsensitiveMultiMap()
+            .addAll(options.getHeaders())
+            .remove(HttpHeaders.AUTHORIZATION)
+        );
+      }
+      return options;
+    });
+  }
+
+  private Completable checkLength(String url, Range range) {
+    if (range.length() < 0) {
+      return Completable.complete();
+    }
+    return vertx
+      .fileSystem()
+      .rxProps(range.part().toString())
+      .map(FileProps::size)
+      .flatMapCompletable(size ->
+        size == range.length()
+          ? Completable.complete()
+          : Completable.error(
+            new IllegalStateException(
+              "Fetched " + size + " of " + range.length() + " bytes of " + url
+            )
+          )
+      );
+  }
+
+  /**
+   * Joins the ranges, checks the file and moves it into place.
+   */
+  private Path complete(
+    Path target,
+    List<Range> ranges,
+    RemoteFile remote
+  ) throws IOException {
+    var part = ranges.size() == 1 ? ranges.getFirst().part() : join(ranges);
+    var size = Files.size(part);
+    if (remote.size() >= 0 && size != remote.size()) {
+      Files.delete(part);
+      throw new IllegalStateException(
+        "Fetched " + size + " of " + remote.size() + " bytes of " + target
+      );
+    }
+    var sha256 = ModelKeys.sha256(part);
+    if (remote.sha256() != null && !remote.sha256().equals(sha256)) {
+      Files.delete(part);
+      throw new IllegalStateException("Checksum mismatch for " + target);
+    }
+    blobs.store(part, sha256, target);
+    Files.writeString(withSuffix(target, DIGEST_SUFFIX), sha256);
+    LOGGER.debug("Fetched {} ({} bytes)", target, size);
+    return target;
+  }
+
+  private static Path join(List<Range> ranges) throws IOException {
+    var first = ranges.getFirst().part().toString();
+    var part = Path.of(first.substring(0, first.lastIndexOf('-')));
+    try (var out = FileChannel.open(part, CREATE, WRITE, TRUNCATE_EXISTING)) {
+      for (var range : ranges) {
+        try (var in = FileChannel.open(range.part(), READ)) {
+          for (long position = 0; position < in.size(); ) {
+            position += in.transferTo(position, in.size() - position, out);
+          }
+        }
+      }
+    }
+    for (var range : ranges) {
+      Files.delete(range.part());
+    }
+    return part;
+  }
+
+  private <T> Single<T> blocking(Callable<T> callable) {
+    return Single.fromCallable(callable).subscribeOn(
+      RxHelper.blockingScheduler(vertx, false)
+    );
+  }
+
+  private static Path withSuffix(Path path, String suffix) {
+    return path.resolveSibling(path.getFileName() + suffix);
+  }
+
+  private static long size(String header) {
+    try {
+      return header == null ? -1 : Long.parseLong(header.trim());
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * @return the SHA-256 given by an ETag, or {@code null} when it is another
+   * kind of ETag
+   */
+  private static String sha256(String etag) {
+    if (etag == null) {
+      return null;
+    }
+    var value = etag.replaceFirst("^W/", "").replace("\"", "")
+      .toLowerCase(Locale.ROOT);
+    return SHA256.matcher(value).matches() ? value : null;
+  }
+
+  public void close() {
+    client.rxClose().subscribe();
+  }
+
+  private record RemoteFile(long size, String sha256, boolean acceptsRanges) {}
+
+  /**
+   * Bytes {@code start} to {@code end} of a file, or to its end when
+   * {@code end} is negative.
+   */
+  private record Range(Path part, long start, long end) {
+    long length() {
+      return end < 0 ? -1 : end - start + 1;
+    }
+  }
+}
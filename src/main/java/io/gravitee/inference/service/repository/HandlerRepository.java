@@ -16,14 +16,34 @@
 package io.gravitee.inference.service.repository;
 
 import io.gravitee.inference.service.handler.InferenceHandler;
+import io.gravitee.inference.service.metrics.CircuitStats;
+import io.reactivex.rxjava3.core.Completable;
+import io.reactivex.rxjava3.core.Single;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.lang.Nullable;
 
 /**
+ * Shares the models loaded by several APIs, counting their users.
+ * <p>
+ * Loading is single-flight: the first subscriber to {@link #add} loads the
+ * model, and the ones subscribing while it loads get the same result. The map
+ * is only locked to count a user, never while a model loads. A failed load is
+ * forgotten, so that the next {@link #add} tries again.
+ * <p>
+ * Models with a known {@link InferenceHandler#memoryBytes() size} can be
+ * unloaded while still in use, when they stay idle longer than the
+ * {@link ResidencyConfig} allows or to make room for another model within its
+ * memory budget. They are loaded again by their next inference, through the
+ * handler returned by {@link #add}.
+ *
  * @author Rémi SULTAN (remi.sultan at graviteesource.com)
  * @author GraviteeSource Team
  */
@@ -33,33 +53,55 @@ public class HandlerRepository implements Repository<InferenceHandler> {
     HandlerRepository.class
   );
 
-  private final Map<Integer, ModelEntry> models = new ConcurrentHashMap<>();
+  private final Map<String, ModelEntry> models = new ConcurrentHashMap<>();
+  private final ResidencyConfig residency;
+
+  public HandlerRepository() {
+    this(ResidencyConfig.unbounded());
+  }
+
+  public HandlerRepository(ResidencyConfig residency) {
+    this.residency = residency;
+  }
 
+  /**
+   * @return a handler of the loaded model, shared by every user of the same
+   * key. The model loads on the thread of the first subscriber.
+   */
   @Override
-  public InferenceHandler add(InferenceHandler handler) {
-    return models
-      .compute(handler.key(), (k, v) -> {
+  public Single<InferenceHandler> add(InferenceHandler handler) {
+    return Single.defer(() -> {
+      var entry = models.compute(handler.key(), (k, v) -> {
         if (v == null) {
           LOGGER.debug("Model does not exist, creating model");
-          ModelEntry entry = new ModelEntry(handler);
-          entry.handler().loadModel();
-          return entry;
+          return new ModelEntry(handler);
         }
         LOGGER.debug("Model already exists, returning existing model");
         return v.retain();
-      })
-      .handler();
+      });
+      return entry
+        .load()
+        .<InferenceHandler>map(__ -> entry.shared)
+        .doOnError(e ->
+          models.computeIfPresent(handler.key(), (k, v) ->
+            v == entry ? v.release() : v
+          )
+        );
+    });
   }
 
   public int getModelsSize() {
     return models.size();
   }
 
-  public int getModelUsage(int key) {
-    return models
-      .getOrDefault(key, new ModelEntry(null, new AtomicInteger()))
-      .counter()
-      .get();
+  public int getModelUsage(String key) {
+    var entry = models.get(key);
+    return entry == null ? 0 : entry.counter.get();
+  }
+
+  public boolean isModelLoaded(String key) {
+    var entry = models.get(key);
+    return entry != null && entry.isResident();
   }
 
   @Override
@@ -67,9 +109,205 @@ public class HandlerRepository implements Repository<InferenceHandler> {
     models.computeIfPresent(handler.key(), (k, v) -> v.release());
   }
 
-  private record ModelEntry(InferenceHandler handler, AtomicInteger counter) {
+  /**
+   * Unloads the models idle for longer than the idle timeout. Blocks while
+   * they close.
+   */
+  public void unloadIdleModels() {
+    if (!residency.expiresIdleModels()) {
+      return;
+    }
+    var idleSince =
+      System.nanoTime() -
+      TimeUnit.MILLISECONDS.toNanos(residency.idleTimeoutMillis());
+    models
+      .values()
+      .stream()
+      .filter(entry -> entry.isUnloadable() && entry.lastUsed - idleSince < 0)
+      .filter(ModelEntry::unloadIfIdle)
+      .forEach(entry -> {
+        entry.awaitClosed();
+        LOGGER.debug("Unloaded idle model {}", entry);
+      });
+  }
+
+  /**
+   * Unloads the least recently used idle models until the model about to load
+   * fits in the memory budget. The budget is a soft limit: the model loads
+   * anyway when the others are all busy. Blocks while they close.
+   */
+  private void makeRoom(ModelEntry loading) {
+    var needed = loading.memoryBytes();
+    if (!residency.isBudgeted() || needed <= 0) {
+      return;
+    }
+    var unloaded = pickUnloaded(loading, needed);
+    // Closed outside the lock, so that other loads do not wait for them
+    unloaded.forEach(entry -> {
+      entry.awaitClosed();
+      LOGGER.debug("Unloaded model {} to free memory", entry);
+    });
+  }
+
+  /**
+   * @return the models unloaded to make room for the given one, still to
+   * close
+   */
+  private synchronized List<ModelEntry> pickUnloaded(
+    ModelEntry loading,
+    long needed
+  ) {
+    var used = models
+      .values()
+      .stream()
+      .filter(ModelEntry::isResident)
+      .mapToLong(ModelEntry::memoryBytes)
+      .sum();
+    var candidates = models
+      .values()
+      .stream()
+      .filter(entry -> entry != loading && entry.isUnloadable())
+      .sorted(Comparator.comparingLong(entry -> entry.lastUsed))
+      .toList();
+    var unloaded = new ArrayList<ModelEntry>();
+    for (var entry : candidates) {
+      if (used + needed <= residency.memoryBudget()) {
+        break;
+      }
+      if (entry.unloadIfIdle()) {
+        unloaded.add(entry);
+        used -= entry.memoryBytes();
+      }
+    }
+    if (used + needed > residency.memoryBudget()) {
+      LOGGER.warn(
+        "Loading model {} exceeds the memory budget: {} bytes used of {}",
+        loading.handler.key(),
+        used + needed,
+        residency.memoryBudget()
+      );
+    }
+    return unloaded;
+  }
+
+  private final class ModelEntry {
+
+    private final InferenceHandler handler;
+    private final InferenceHandler shared = new SharedHandler();
+    private final AtomicInteger counter = new AtomicInteger(1);
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile long lastUsed = System.nanoTime();
+    // Read once, as reading it may touch the model files
+    private volatile long memoryBytes = -1;
+
+    // Guarded by this
+    private Single<InferenceHandler> loading;
+    private int generation;
+    private boolean resident;
+    private boolean released;
+    // Closes the model last unloaded, once
+    private Completable closing = Completable.complete();
+
     private ModelEntry(InferenceHandler handler) {
-      this(handler, new AtomicInteger(1));
+      this.handler = handler;
+    }
+
+    /**
+     * @return the model, loaded by the first subscriber if it is not loaded,
+     * once it closed when it was unloaded
+     */
+    private synchronized Single<InferenceHandler> load() {
+      if (released) {
+        return Single.error(new IllegalStateException("Model is released"));
+      }
+      if (loading == null) {
+        var attempt = ++generation;
+        loading = closing
+          .andThen(
+            Single.fromCallable(() -> {
+              makeRoom(this);
+              handler.loadModel();
+              boolean current;
+              synchronized (this) {
+                current = attempt == generation;
+                resident = current;
+              }
+              if (!current) {
+                // Released while loading
+                handler.close();
+              }
+              return handler;
+            })
+          )
+          .doOnError(e -> {
+            LOGGER.debug("Failed to load model, forgetting it");
+            synchronized (this) {
+              if (attempt == generation) {
+                loading = null;
+              }
+            }
+          })
+          .cache();
+      }
+      return loading;
+    }
+
+    private synchronized Single<InferenceHandler> acquire() {
+      inFlight.incrementAndGet();
+      lastUsed = System.nanoTime();
+      return load();
+    }
+
+    private void done() {
+      lastUsed = System.nanoTime();
+      inFlight.decrementAndGet();
+    }
+
+    private long memoryBytes() {
+      var bytes = memoryBytes;
+      if (bytes < 0) {
+        bytes = memoryBytes = handler.memoryBytes();
+      }
+      return bytes;
+    }
+
+    private synchronized boolean isResident() {
+      return resident;
+    }
+
+    private boolean isUnloadable() {
+      return memoryBytes() > 0 && isResident();
+    }
+
+    /**
+     * Marks the model unloaded when it is resident and idle, to be closed by
+     * {@link #awaitClosed()} or by its next load, whichever comes first.
+     */
+    private synchronized boolean unloadIfIdle() {
+      if (!resident || inFlight.get() > 0) {
+        return false;
+      }
+      unload();
+      return true;
+    }
+
+    // Guarded by this
+    private void unload() {
+      resident = false;
+      loading = null;
+      generation++;
+      closing = Completable.fromAction(handler::close)
+        .doOnError(e -> LOGGER.warn("Failed to close model {}", this, e))
+        .onErrorComplete()
+        .cache();
+    }
+
+    private void awaitClosed() {
+      Completable closed;
+      synchronized (this) {
+        closed = closing;
+      }
+      closed.blockingAwait();
     }
 
     public ModelEntry retain() {
@@ -82,11 +320,75 @@ public class HandlerRepository implements Repository<InferenceHandler> {
       int i = counter.decrementAndGet();
       if (i <= 0) {
         LOGGER.debug("Model not in use anymore, tearing down model");
-        handler.close();
+        synchronized (this) {
+          released = true;
+          if (resident) {
+            unload();
+          } else {
+            // A model loading is closed once loaded
+            loading = null;
+            generation++;
+          }
+        }
+        awaitClosed();
         return null;
       }
       LOGGER.debug("Model still in use [{} time(s)]", counter);
       return this;
     }
+
+    @Override
+    public String toString() {
+      return handler.key();
+    }
+
+    /**
+     * The handler given to the users of the model, loading it again before
+     * inferring when it was unloaded.
+     */
+    private final class SharedHandler implements InferenceHandler {
+
+      @Override
+      public Single<Object> infer(Object input) {
+        return Single.using(
+          ModelEntry.this::acquire,
+          loaded -> loaded.flatMap(model -> model.infer(input)),
+          __ -> done()
+        );
+      }
+
+      /**
+       * Loads the model first when it was unloaded, and keeps it from being
+       * unloaded while it warms up.
+       */
+      @Override
+      public Completable warmUp() {
+        return Completable.using(
+          ModelEntry.this::acquire,
+          loaded -> loaded.flatMapCompletable(InferenceHandler::warmUp),
+          __ -> done()
+        );
+      }
+
+      @Override
+      public long memoryBytes() {
+        return ModelEntry.this.memoryBytes();
+      }
+
+      @Override
+      public CircuitStats circuitStats() {
+        return handler.circuitStats();
+      }
+
+      @Override
+      public void close() {
+        // The model is closed by the repository once released by every user
+      }
+
+      @Override
+      public String key() {
+        return handler.key();
+      }
+    }
   }
 }
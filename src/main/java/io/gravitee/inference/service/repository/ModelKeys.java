@@ -0,0 +1,155 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.inference.service.repository;
+
+import io.vertx.core.json.Json;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stable digests of model payloads, independent of map ordering, of number
+ * types and of the JVM, so that they can key shared models and name files
+ * shared across restarts.
+ *
+ * @author GraviteeSource Team
+ */
+public final class ModelKeys {
+
+  private static final int BUFFER_SIZE = 1 << 16;
+  private static final Map<FileVersion, String> FILE_DIGESTS =
+    new ConcurrentHashMap<>();
+
+  private ModelKeys() {}
+
+  /**
+   * @return the hex encoded SHA-256 of the canonical JSON form of the payload,
+   * without the excluded keys
+   */
+  public static String sha256(
+    Map<String, Object> payload,
+    Collection<String> excludedKeys
+  ) {
+    var canonical = new TreeMap<String, Object>();
+    payload.forEach((key, value) -> {
+      if (!excludedKeys.contains(key)) {
+        canonical.put(key, canonicalize(value));
+      }
+    });
+    return sha256(Json.encode(canonical).getBytes(StandardCharsets.UTF_8));
+  }
+
+  public static String sha256(byte[] bytes) {
+    return HexFormat.of().formatHex(digest().digest(bytes));
+  }
+
+  /**
+   * @return the hex encoded SHA-256 of the content of the file, computed once
+   * per size and modification time of the file
+   */
+  public static String sha256(Path file) throws IOException {
+    var version = new FileVersion(
+      file.toAbsolutePath().normalize(),
+      Files.size(file),
+      Files.getLastModifiedTime(file).toMillis()
+    );
+    var cached = FILE_DIGESTS.get(version);
+    if (cached != null) {
+      return cached;
+    }
+    var digest = digest();
+    try (var in = Files.newInputStream(file)) {
+      var buffer = new byte[BUFFER_SIZE];
+      for (int read; (read = in.read(buffer)) != -1; ) {
+        digest.update(buffer, 0, read);
+      }
+    }
+    var sha256 = HexFormat.of().formatHex(digest.digest());
+    FILE_DIGESTS.put(version, sha256);
+    return sha256;
+  }
+
+  /**
+   * @return a copy of the payload where the values of the path keys naming
+   * regular files are replaced by the digests of their content, so that the
+   * same files at different paths give the same key
+   */
+  public static Map<String, Object> withFileDigests(
+    Map<String, Object> payload,
+    Collection<String> pathKeys
+  ) {
+    var digested = new HashMap<>(payload);
+    for (var key : pathKeys) {
+      if (payload.get(key) instanceof String path) {
+        var file = Path.of(path);
+        if (Files.isRegularFile(file)) {
+          try {
+            digested.put(key, "sha256:" + sha256(file));
+          } catch (IOException e) {
+            throw new IllegalStateException("Failed to read " + file, e);
+          }
+        }
+      }
+    }
+    return digested;
+  }
+
+  public static MessageDigest digest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+
+  private static Object canonicalize(Object value) {
+    return switch (value) {
+      case Map<?, ?> map -> {
+        var sorted = new TreeMap<String, Object>();
+        map.forEach((k, v) -> sorted.put(String.valueOf(k), canonicalize(v)));
+        yield sorted;
+      }
+      case Collection<?> values -> values
+        .stream()
+        .map(ModelKeys::canonicalize)
+        .toList();
+      case Enum<?> constant -> constant.name();
+      // 512.0 and 512 configure the same model
+      case Double number when isIntegral(number) -> number.longValue();
+      case Float number when isIntegral(number) -> number.longValue();
+      case null -> null;
+      default -> value instanceof Number || value instanceof Boolean
+        ? value
+        : value.toString();
+    };
+  }
+
+  private static boolean isIntegral(Number number) {
+    var value = number.doubleValue();
+    return value == Math.rint(value) && Math.abs(value) < 0x1p53;
+  }
+
+  private record FileVersion(Path path, long size, long lastModified) {}
+}
@@ -15,12 +15,14 @@
  */
 package io.gravitee.inference.service.repository;
 
+import io.reactivex.rxjava3.core.Single;
+
 /**
  * @author Rémi SULTAN (remi.sultan at graviteesource.com)
  * @author GraviteeSource Team
  */
 public interface Repository<T> {
-  T add(T config);
+  Single<T> add(T config);
 
   void remove(T model);
 }
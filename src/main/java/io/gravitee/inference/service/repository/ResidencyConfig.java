@@ -0,0 +1,40 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.inference.service.repository;
+
+/**
+ * How many local models a node keeps loaded.
+ *
+ * @param memoryBudget the total size of the loaded models in bytes beyond
+ * which the least recently used idle ones are unloaded, {@code 0} for no
+ * budget
+ * @param idleTimeoutMillis how long a model stays loaded without requests,
+ * {@code 0} to keep it until it is stopped
+ * @author GraviteeSource Team
+ */
+public record ResidencyConfig(long memoryBudget, long idleTimeoutMillis) {
+  public static ResidencyConfig unbounded() {
+    return new ResidencyConfig(0, 0);
+  }
+
+  public boolean isBudgeted() {
+    return memoryBudget > 0;
+  }
+
+  public boolean expiresIdleModels() {
+    return idleTimeoutMillis > 0;
+  }
+}
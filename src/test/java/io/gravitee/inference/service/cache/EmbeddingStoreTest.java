@@ -0,0 +1,155 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.inference.service.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.gravitee.inference.api.embedding.EmbeddingTokenCount;
+import io.gravitee.inference.service.handler.config.EmbeddingStoreConfig;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author GraviteeSource Team
+ */
+public class EmbeddingStoreTest {
+
+  // Record overhead plus 4 dimensions
+  private static final int RECORD_BYTES = 48 + 16;
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void must_keep_embeddings_across_restarts() throws Exception {
+    var config = new EmbeddingStoreConfig(1 << 20, 1 << 16);
+    try (var store = EmbeddingStore.open(directory, config)) {
+      for (int i = 0; i < 10_000; i++) {
+        store.put("text " + i, embedding(i));
+      }
+    }
+
+    try (var store = EmbeddingStore.open(directory, config)) {
+      assertEquals(10_000, store.stats().size());
+      var stored = store.get("text 4242");
+      assertArrayEquals(embedding(4242).embedding(), stored.embedding());
+      assertEquals(4242, stored.tokenCount());
+      assertNull(store.get("unknown"));
+    }
+  }
+
+  @Test
+  void must_refuse_to_open_a_store_in_use() throws Exception {
+    var config = new EmbeddingStoreConfig(1 << 20, 1 << 16);
+    try (var store = EmbeddingStore.open(directory, config)) {
+      store.put("a", embedding(1));
+      assertThrows(IllegalStateException.class, () ->
+        EmbeddingStore.open(directory, config)
+      );
+      assertNotNull(store.get("a"));
+    }
+  }
+
+  @Test
+  void must_compact_away_embeddings_not_read_since_written() throws Exception {
+    var config = new EmbeddingStoreConfig(4 * RECORD_BYTES, 2 * RECORD_BYTES);
+    try (var store = EmbeddingStore.open(directory, config)) {
+      store.put("a", embedding(1));
+      store.put("b", embedding(2));
+      assertNotNull(store.get("a"));
+      store.put("c", embedding(3));
+      store.put("d", embedding(4));
+      store.put("e", embedding(5));
+
+      assertNotNull(store.get("a"));
+      assertNull(store.get("b"));
+      assertNotNull(store.get("e"));
+      assertEquals(1, store.stats().evictions());
+      assertFalse(Files.exists(segment(1)));
+    }
+  }
+
+  @Test
+  void must_collect_stores_unused_for_longer_than_retention() throws Exception {
+    var config = new EmbeddingStoreConfig(1 << 20, 1 << 16);
+    var unused = directory.resolve("unused");
+    var recent = directory.resolve("recent");
+    var opened = directory.resolve("opened");
+    EmbeddingStore.open(unused, config).close();
+    EmbeddingStore.open(recent, config).close();
+    Files.setLastModifiedTime(
+      unused.resolve(".lock"),
+      FileTime.fromMillis(System.currentTimeMillis() - 120_000)
+    );
+
+    try (var store = EmbeddingStore.open(opened, config)) {
+      store.put("a", embedding(1));
+      var lastUsed = FileTime.fromMillis(0);
+      Files.setLastModifiedTime(opened.resolve(".lock"), lastUsed);
+      EmbeddingStore.collect(directory, Duration.ofMinutes(1));
+      assertNotNull(store.get("a"));
+    }
+
+    assertFalse(Files.exists(unused));
+    assertTrue(Files.exists(recent));
+    assertTrue(Files.exists(opened));
+  }
+
+  @Test
+  void must_ignore_torn_record() throws Exception {
+    var config = new EmbeddingStoreConfig(1 << 20, 1 << 16);
+    try (var store = EmbeddingStore.open(directory, config)) {
+      store.put("a", embedding(1));
+      store.put("b", embedding(2));
+    }
+    var segment = segment(1);
+    try (var file = new RandomAccessFile(segment.toFile(), "rw")) {
+      file.seek(2L * RECORD_BYTES - 8);
+      file.writeFloat(42f);
+    }
+
+    try (var store = EmbeddingStore.open(directory, config)) {
+      assertNotNull(store.get("a"));
+      assertNull(store.get("b"));
+      store.put("c", embedding(3));
+    }
+    try (var store = EmbeddingStore.open(directory, config)) {
+      assertEquals(2, store.stats().size());
+      assertNotNull(store.get("c"));
+    }
+    assertTrue(Files.exists(segment));
+  }
+
+  private Path segment(int id) {
+    return directory.resolve(
+      EmbeddingStore.SEGMENT_PREFIX +
+      String.format("%010d", id) +
+      EmbeddingStore.SEGMENT_SUFFIX
+    );
+  }
+
+  private static EmbeddingTokenCount embedding(int seed) {
+    return new EmbeddingTokenCount(
+      new float[] { seed, seed + 0.25f, -seed, seed * 0.5f },
+      seed
+    );
+  }
+}
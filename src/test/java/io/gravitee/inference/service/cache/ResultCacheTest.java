@@ -0,0 +1,82 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.inference.service.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.gravitee.inference.service.handler.config.CacheConfig;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author GraviteeSource Team
+ */
+public class ResultCacheTest {
+
+  private final AtomicLong clock = new AtomicLong();
+
+  @Test
+  void must_evict_least_recently_used_entry() {
+    var cache = new ResultCache(new CacheConfig(2, 0, 0), clock::get);
+
+    cache.put("a", "A");
+    cache.put("b", "B");
+    assertEquals("A", cache.get("a"));
+    cache.put("c", "C");
+
+    assertEquals("A", cache.get("a"));
+    assertNull(cache.get("b"));
+    assertEquals("C", cache.get("c"));
+    var stats = cache.stats();
+    assertEquals(3, stats.hits());
+    assertEquals(1, stats.misses());
+    assertEquals(1, stats.evictions());
+    assertEquals(2, stats.size());
+  }
+
+  @Test
+  void must_expire_entries_after_ttl() {
+    var cache = new ResultCache(new CacheConfig(10, 0, 100), clock::get);
+
+    cache.put("a", List.of(1f, 2f));
+    clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(99));
+    assertEquals(List.of(1f, 2f), cache.get("a"));
+
+    clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+    assertNull(cache.get("a"));
+    assertEquals(0, cache.stats().size());
+  }
+
+  @Test
+  void must_bound_estimated_size() {
+    var vector = new float[64];
+    var weight = ResultCache.weigh("a") + ResultCache.weigh(vector);
+    var cache = new ResultCache(new CacheConfig(0, 2 * weight, 0), clock::get);
+
+    cache.put("a", vector);
+    cache.put("b", vector);
+    cache.put("c", vector);
+    cache.put("d", new float[1024]);
+
+    assertNull(cache.get("a"));
+    assertSame(vector, cache.get("b"));
+    assertSame(vector, cache.get("c"));
+    assertNull(cache.get("d"));
+    assertEquals(2 * weight, cache.stats().bytes());
+  }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.inference.service.codec;
+
+import static io.gravitee.inference.api.Constants.INPUT;
+import static io.gravitee.inference.api.service.InferenceAction.INFER;
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.gravitee.inference.api.embedding.EmbeddingTokenCount;
+import io.gravitee.inference.api.service.InferenceRequest;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonObject;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author GraviteeSource Team
+ */
+public class InferenceCodecsTest {
+
+  private static final int OFFSET = 3;
+
+  @Test
+  void must_encode_request_on_the_wire() {
+    var codec = new InferenceRequestCodec();
+    var request = new InferenceRequest(INFER, Map.of(INPUT, "Hello world"));
+
+    var decoded = codec.decodeFromWire(OFFSET, encode(codec, request));
+
+    assertEquals(request, decoded);
+  }
+
+  @Test
+  void must_encode_request_action_by_name() {
+    var codec = new InferenceRequestCodec();
+    var buffer = encode(codec, new InferenceRequest(INFER, null));
+
+    var action = buffer.getString(OFFSET + 4, buffer.length() - 4);
+
+    assertEquals(INFER.name(), action);
+    assertEquals(
+      new InferenceRequest(INFER, null),
+      codec.decodeFromWire(OFFSET, buffer)
+    );
+  }
+
+  @Test
+  void must_only_unregister_codecs_it_registered() {
+    var vertx = Vertx.vertx();
+    try {
+      var eventBus = vertx.eventBus();
+      var first = InferenceCodecs.register(eventBus);
+
+      // Another plugin sharing the event bus starts and stops
+      InferenceCodecs.register(eventBus).dispose();
+      assertThrows(IllegalStateException.class, () ->
+        eventBus.registerCodec(new InferenceOutputsCodec())
+      );
+
+      first.dispose();
+      eventBus.registerCodec(new InferenceOutputsCodec());
+    } finally {
+      vertx.close().await();
+    }
+  }
+
+  @Test
+  void must_encode_embedding_as_raw_floats() {
+    var codec = new EmbeddingTokenCountCodec();
+    var embedding = new EmbeddingTokenCount(new float[] { 0.5f, -1.25f }, 4);
+
+    var buffer = encode(codec, embedding);
+    var decoded = codec.decodeFromWire(OFFSET, buffer);
+
+    assertEquals(OFFSET + 8 + 2 * Float.BYTES, buffer.length());
+    assertEquals(4, decoded.tokenCount());
+    assertArrayEquals(embedding.embedding(), decoded.embedding());
+  }
+
+  @Test
+  void must_encode_batch_outputs_on_the_wire() {
+    var codec = new InferenceOutputsCodec();
+    List<Object> outputs = List.of(
+      new EmbeddingTokenCount(new float[] { 1f }, 1),
+      Map.of("label", "POSITIVE")
+    );
+
+    var decoded = codec.decodeFromWire(OFFSET, encode(codec, outputs));
+
+    assertEquals(2, decoded.size());
+    var embedding = (EmbeddingTokenCount) decoded.get(0);
+    assertArrayEquals(new float[] { 1f }, embedding.embedding());
+    assertEquals(new JsonObject().put("label", "POSITIVE"), decoded.get(1));
+  }
+
+  @Test
+  void must_copy_outputs_for_local_consumers() {
+    var codec = new InferenceOutputsCodec();
+    var embedding = new EmbeddingTokenCount(new float[] { 1f }, 1);
+    List<Object> outputs = List.of(embedding);
+
+    var copy = codec.transform(outputs);
+    ((EmbeddingTokenCount) copy.get(0)).embedding()[0] = 2f;
+
+    assertNotSame(outputs, copy);
+    assertArrayEquals(new float[] { 1f }, embedding.embedding());
+  }
+
+  @Test
+  void must_decode_request_from_json_or_object() {
+    var request = new InferenceRequest(INFER, Map.of(INPUT, "Hello"));
+
+    assertSame(request, InferenceCodecs.decodeRequest(request));
+    assertEquals(
+      request,
+      InferenceCodecs.decodeRequest(Json.encodeToBuffer(request))
+    );
+    assertThrows(IllegalArgumentException.class, () ->
+      InferenceCodecs.decodeRequest("not a request")
+    );
+  }
+
+  private static <T> Buffer encode(
+    io.vertx.core.eventbus.MessageCodec<T, ?> codec,
+    T value
+  ) {
+    // Simulates the event bus header written before the body
+    var buffer = Buffer.buffer().appendBytes(new byte[OFFSET]);
+    codec.encodeToWire(buffer, value);
+    return buffer;
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.inference.service.handler;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.gravitee.inference.service.handler.config.CircuitBreakerConfig;
+import io.gravitee.inference.service.metrics.CircuitStats.State;
+import io.gravitee.inference.service.model.UpstreamException;
+import io.reactivex.rxjava3.core.Single;
+import io.vertx.core.eventbus.ReplyException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author GraviteeSource Team
+ */
+public class CircuitBreakerTest {
+
+  private final AtomicLong now = new AtomicLong();
+  private final AtomicInteger attempts = new AtomicInteger();
+  private CircuitBreaker breaker;
+
+  @BeforeEach
+  void setUp() {
+    breaker = new CircuitBreaker(
+      "test",
+      new CircuitBreakerConfig(true, 4, 4, 50, 100, 100, 1_000, 2),
+      now::get
+    );
+  }
+
+  @Test
+  void must_fail_fast_once_failure_rate_is_reached() {
+    succeed();
+    succeed();
+    fail(400);
+    assertEquals(State.CLOSED, breaker.stats().state());
+    fail(502);
+    fail(503);
+    assertEquals(State.OPEN, breaker.stats().state());
+
+    breaker
+      .call(this::success)
+      .test()
+      .assertError(
+        error ->
+          error instanceof ReplyException reply && reply.failureCode() == 503
+      );
+    assertEquals(5, attempts.get());
+    assertEquals(1, breaker.stats().rejected());
+  }
+
+  @Test
+  void must_count_slow_calls() {
+    for (int i = 0; i < 4; i++) {
+      breaker
+        .call(() ->
+          Single.fromCallable(() -> {
+            now.addAndGet(TimeUnit.MILLISECONDS.toNanos(200));
+            return "slow";
+          })
+        )
+        .test()
+        .assertValue("slow");
+    }
+
+    var stats = breaker.stats();
+    assertEquals(State.OPEN, stats.state());
+    assertEquals(100d, stats.slowCallRate());
+    assertEquals(0d, stats.failureRate());
+  }
+
+  @Test
+  void must_close_once_probes_succeed() {
+    open();
+    now.addAndGet(TimeUnit.MILLISECONDS.toNanos(1_000));
+
+    succeed();
+    assertEquals(State.HALF_OPEN, breaker.stats().state());
+    succeed();
+
+    var stats = breaker.stats();
+    assertEquals(State.CLOSED, stats.state());
+    assertEquals(0, stats.calls());
+  }
+
+  @Test
+  void must_open_again_when_probe_fails() {
+    open();
+    now.addAndGet(TimeUnit.MILLISECONDS.toNanos(1_000));
+
+    fail(504);
+
+    assertEquals(State.OPEN, breaker.stats().state());
+    breaker.call(this::success).test().assertError(ReplyException.class);
+  }
+
+  private void open() {
+    for (int i = 0; i < 4; i++) {
+      fail(500);
+    }
+    assertEquals(State.OPEN, breaker.stats().state());
+  }
+
+  private void succeed() {
+    breaker.call(this::success).test().assertValue("embedding");
+  }
+
+  private void fail(int status) {
+    breaker
+      .call(() -> {
+        attempts.incrementAndGet();
+        return Single.error(new UpstreamException(status, "Failed"));
+      })
+      .test()
+      .assertError(UpstreamException.class);
+  }
+
+  private Single<String> success() {
+    attempts.incrementAndGet();
+    return Single.just("embedding");
+  }
+}
@@ -0,0 +1,304 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.inference.service.handler;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.gravitee.inference.api.service.InferenceAction;
+import io.gravitee.inference.api.service.InferenceRequest;
+import io.gravitee.inference.service.handler.config.BatchConfig;
+import io.gravitee.inference.service.handler.config.CacheConfig;
+import io.gravitee.inference.service.handler.config.WorkerConfig;
+import io.reactivex.rxjava3.core.Single;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.json.Json;
+import io.vertx.rxjava3.core.Vertx;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author GraviteeSource Team
+ */
+public class DelegatingInferenceHandlerTest {
+
+  private static final String ADDRESS = "service:inference:models:test:infer";
+
+  private Vertx vertx;
+  private DelegatingInferenceHandler handler;
+  private final CountDownLatch release = new CountDownLatch(1);
+  private final CountDownLatch running = new CountDownLatch(1);
+
+  @BeforeEach
+  void setUp() {
+    vertx = Vertx.vertx();
+  }
+
+  @AfterEach
+  void tearDown() {
+    release.countDown();
+    handler.close();
+    vertx.close().blockingAwait();
+  }
+
+  @Test
+  void must_reject_requests_beyond_queue_size() throws Exception {
+    handler = new DelegatingInferenceHandler(
+      ADDRESS,
+      vertx,
+      false,
+      BatchConfig.disabled(),
+      CacheConfig.disabled(),
+      new WorkerConfig(1, 1, 1)
+    );
+    handler.setDelegate(new BlockingHandler());
+
+    var first = request("first").test();
+    assertTrue(running.await(5, TimeUnit.SECONDS));
+    var second = request("second").test();
+    var third = request("third").test();
+
+    third
+      .awaitDone(5, TimeUnit.SECONDS)
+      .assertError(
+        error ->
+          error instanceof ReplyException reply && reply.failureCode() == 429
+      );
+    release.countDown();
+    first.awaitDone(5, TimeUnit.SECONDS).assertValue("first");
+    second.awaitDone(5, TimeUnit.SECONDS).assertValue("second");
+    assertEquals(Map.of(429, 1L), handler.metrics().errors());
+  }
+
+  @Test
+  void must_fail_pending_requests_when_closed() throws Exception {
+    handler = new DelegatingInferenceHandler(
+      ADDRESS,
+      vertx,
+      false,
+      BatchConfig.disabled(),
+      CacheConfig.disabled(),
+      new WorkerConfig(1, 0, 1)
+    );
+    handler.setDelegate(new BlockingHandler());
+
+    var first = request("first").test();
+    assertTrue(running.await(5, TimeUnit.SECONDS));
+    var second = request("second").test();
+    var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (handler.metrics().queued() == 0 && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    handler.close();
+
+    for (var call : List.of(first, second)) {
+      call
+        .awaitDone(5, TimeUnit.SECONDS)
+        .assertError(
+          error ->
+            error instanceof ReplyException reply && reply.failureCode() == 503
+        );
+    }
+  }
+
+  @Test
+  void must_drain_previous_model_when_swapped() throws Exception {
+    handler = new DelegatingInferenceHandler(
+      ADDRESS,
+      vertx,
+      false,
+      BatchConfig.disabled(),
+      CacheConfig.disabled(),
+      new WorkerConfig(2, 0, 1)
+    );
+    var previous = new BlockingHandler();
+    handler.setDelegate(previous);
+
+    var first = request("first").test();
+    assertTrue(running.await(5, TimeUnit.SECONDS));
+    var swapped = handler.swapDelegate(new EchoHandler()).test();
+
+    request("second")
+      .test()
+      .awaitDone(5, TimeUnit.SECONDS)
+      .assertValue("echo:second");
+    swapped.assertNotComplete();
+
+    release.countDown();
+    first.awaitDone(5, TimeUnit.SECONDS).assertValue("first");
+    swapped.awaitDone(5, TimeUnit.SECONDS).assertValue(previous);
+  }
+
+  @Test
+  void must_not_cache_outputs_of_previous_model() throws Exception {
+    handler = new DelegatingInferenceHandler(
+      ADDRESS,
+      vertx,
+      false,
+      BatchConfig.disabled(),
+      new CacheConfig(16, 0, 0),
+      new WorkerConfig(2, 0, 1)
+    );
+    handler.setDelegate(new BlockingHandler());
+
+    var first = request("input").test();
+    assertTrue(running.await(5, TimeUnit.SECONDS));
+    handler.swapDelegate(new EchoHandler()).test();
+    release.countDown();
+    first.awaitDone(5, TimeUnit.SECONDS).assertValue("input");
+
+    request("input")
+      .test()
+      .awaitDone(5, TimeUnit.SECONDS)
+      .assertValue("echo:input");
+  }
+
+  @Test
+  void must_share_inference_of_identical_inputs() throws Exception {
+    handler = new DelegatingInferenceHandler(
+      ADDRESS,
+      vertx,
+      false,
+      BatchConfig.disabled(),
+      CacheConfig.disabled(),
+      new WorkerConfig(2, 0, 1)
+    );
+    var blocking = new BlockingHandler();
+    handler.setDelegate(blocking);
+
+    var first = request("same").test();
+    assertTrue(running.await(5, TimeUnit.SECONDS));
+    var second = request("same").test();
+    var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (
+      handler.metrics().deduplicated() == 0 && System.nanoTime() < deadline
+    ) {
+      Thread.sleep(10);
+    }
+    assertEquals(1, handler.metrics().deduplicated());
+
+    release.countDown();
+    first.awaitDone(5, TimeUnit.SECONDS).assertValue("same");
+    second.awaitDone(5, TimeUnit.SECONDS).assertValue("same");
+    assertEquals(1, blocking.calls.get());
+  }
+
+  @Test
+  void must_not_batch_local_inputs() {
+    handler = new DelegatingInferenceHandler(
+      ADDRESS,
+      vertx,
+      false,
+      new BatchConfig(2, 60_000_000),
+      CacheConfig.disabled(),
+      WorkerConfig.shared()
+    );
+    handler.setDelegate(new EchoHandler());
+
+    // A single request does not wait for the batch to fill up
+    request("first")
+      .test()
+      .awaitDone(5, TimeUnit.SECONDS)
+      .assertValue("echo:first");
+  }
+
+  @Test
+  void must_coalesce_concurrent_remote_inputs() {
+    handler = new DelegatingInferenceHandler(
+      ADDRESS,
+      vertx,
+      true,
+      new BatchConfig(8, 20_000),
+      CacheConfig.disabled(),
+      WorkerConfig.shared()
+    );
+    var echo = new EchoHandler();
+    handler.setDelegate(echo);
+
+    var first = request("first").test();
+    var second = request("second").test();
+    var again = request("first").test();
+
+    first.awaitDone(5, TimeUnit.SECONDS).assertValue("echo:first");
+    second.awaitDone(5, TimeUnit.SECONDS).assertValue("echo:second");
+    again.awaitDone(5, TimeUnit.SECONDS).assertValue("echo:first");
+    assertEquals(List.of(List.of("first", "second")), echo.inputs);
+  }
+
+  private Single<Object> request(String input) {
+    return vertx
+      .eventBus()
+      .<Buffer>request(
+        ADDRESS,
+        Json.encodeToBuffer(
+          new InferenceRequest(InferenceAction.INFER, Map.of("input", input))
+        )
+      )
+      .map(reply -> Json.decodeValue(reply.body()));
+  }
+
+  private class BlockingHandler implements InferenceHandler {
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @Override
+    public Single<Object> infer(Object input) {
+      return Single.fromCallable(() -> {
+        calls.incrementAndGet();
+        running.countDown();
+        release.await();
+        return input;
+      });
+    }
+
+    @Override
+    public void close() {}
+
+    @Override
+    public String key() {
+      return "blocking";
+    }
+  }
+
+  private static class EchoHandler implements InferenceHandler {
+
+    private final List<Object> inputs = new CopyOnWriteArrayList<>();
+
+    @Override
+    public Single<Object> infer(Object input) {
+      inputs.add(input);
+      if (input instanceof List<?> list) {
+        return Single.just(list.stream().map(text -> "echo:" + text).toList());
+      }
+      return Single.just("echo:" + input);
+    }
+
+    @Override
+    public void close() {}
+
+    @Override
+    public String key() {
+      return "echo";
+    }
+  }
+}
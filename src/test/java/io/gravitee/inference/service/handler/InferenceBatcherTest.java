@@ -0,0 +1,101 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.inference.service.handler;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.gravitee.inference.service.handler.config.BatchConfig;
+import io.vertx.rxjava3.core.Vertx;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author GraviteeSource Team
+ */
+public class InferenceBatcherTest {
+
+  private Vertx vertx;
+  private List<List<Integer>> batches;
+
+  @BeforeEach
+  void setUp() {
+    vertx = Vertx.vertx();
+    batches = new CopyOnWriteArrayList<>();
+  }
+
+  @AfterEach
+  void tearDown() {
+    vertx.close().blockingAwait();
+  }
+
+  @Test
+  void must_hand_over_full_batches_then_the_rest_on_timer() throws Exception {
+    var done = new CountDownLatch(3);
+    var batcher = new InferenceBatcher<Integer>(
+      vertx,
+      new BatchConfig(2, 20_000),
+      batch -> {
+        batches.add(batch);
+        done.countDown();
+      }
+    );
+
+    var handedOver = new AtomicInteger();
+    vertx.runOnContext(__ -> {
+      for (int i = 0; i < 5; i++) {
+        batcher.offer(i);
+      }
+      handedOver.set(batches.size());
+    });
+
+    assertTrue(done.await(5, TimeUnit.SECONDS));
+    // Full batches do not wait for the timer
+    assertEquals(2, handedOver.get());
+    assertEquals(
+      List.of(List.of(0, 1), List.of(2, 3), List.of(4)),
+      batches
+    );
+  }
+
+  @Test
+  void must_keep_batching_when_handler_throws() throws Exception {
+    var done = new CountDownLatch(3);
+    var batcher = new InferenceBatcher<Integer>(
+      vertx,
+      new BatchConfig(1, 0),
+      batch -> {
+        batches.add(batch);
+        done.countDown();
+        throw new IllegalStateException("Model isn't loaded");
+      }
+    );
+
+    vertx.runOnContext(__ -> {
+      batcher.offer(1);
+      batcher.offer(2);
+      batcher.offer(3);
+    });
+
+    assertTrue(done.await(5, TimeUnit.SECONDS));
+    assertEquals(List.of(List.of(1), List.of(2), List.of(3)), batches);
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.inference.service.handler;
+
+import static io.gravitee.inference.api.Constants.MODEL_PATH;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.gravitee.inference.onnx.OnnxInference;
+import io.gravitee.inference.service.handler.config.WorkerConfig;
+import io.gravitee.inference.service.model.LocalModelFactory;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author GraviteeSource Team
+ */
+public class LocalInferenceHandlerTest {
+
+  private final CountDownLatch running = new CountDownLatch(2);
+  private final CountDownLatch release = new CountDownLatch(1);
+  private final AtomicInteger active = new AtomicInteger();
+  private final Set<Object> used = ConcurrentHashMap.newKeySet();
+
+  @Test
+  void must_run_one_request_per_replica_at_a_time() throws Exception {
+    var handler = handler(replica(), replica());
+
+    var outputs = List.of("a", "b", "c")
+      .stream()
+      .map(input -> handler.infer(input).subscribeOn(Schedulers.io()).test())
+      .toList();
+
+    assertTrue(running.await(5, TimeUnit.SECONDS));
+    // The third request waits for a replica to be free
+    Thread.sleep(100);
+    assertEquals(2, active.get());
+
+    release.countDown();
+    outputs.forEach(output ->
+      output.awaitDone(5, TimeUnit.SECONDS).assertComplete()
+    );
+    assertEquals(2, used.size());
+  }
+
+  @Test
+  void must_fail_requests_once_closed() {
+    var handler = handler(replica(), replica());
+    release.countDown();
+    handler.infer("a").test().assertValue("a");
+
+    handler.close();
+
+    handler.infer("a").test().assertError(NullPointerException.class);
+  }
+
+  private static LocalInferenceHandler handler(
+    OnnxInference<?, ?, ?> first,
+    OnnxInference<?, ?, ?> second
+  ) {
+    LocalModelFactory modelFactory = mock();
+    when(modelFactory.build(any()))
+      .thenAnswer(__ -> first)
+      .thenAnswer(__ -> second);
+    var handler = new LocalInferenceHandler(
+      Map.of(MODEL_PATH, "model.onnx", WorkerConfig.REPLICAS, 2),
+      modelFactory
+    );
+    handler.loadModel();
+    return handler;
+  }
+
+  /**
+   * @return a replica inferring its input once released, counting the
+   * requests it runs
+   */
+  private OnnxInference<Object, Object, Object> replica() {
+    OnnxInference<Object, Object, Object> replica = mock();
+    when(replica.infer(any())).thenAnswer(invocation -> {
+      used.add(replica);
+      active.incrementAndGet();
+      running.countDown();
+      try {
+        release.await(5, TimeUnit.SECONDS);
+        return invocation.getArgument(0);
+      } finally {
+        active.decrementAndGet();
+      }
+    });
+    return replica;
+  }
+}
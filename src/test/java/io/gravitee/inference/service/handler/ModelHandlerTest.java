@@ -20,6 +20,7 @@ import static io.gravitee.inference.api.Constants.MODEL_ADDRESS_KEY;
 import static io.gravitee.inference.api.service.InferenceAction.*;
 import static io.reactivex.rxjava3.core.Observable.fromRunnable;
 import static io.reactivex.rxjava3.core.Observable.timer;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
 
 import io.gravitee.inference.api.InferenceModel;
@@ -31,10 +32,13 @@ import io.gravitee.inference.service.repository.HandlerRepository;
 import io.gravitee.inference.service.repository.Model;
 import io.gravitee.reactive.webclient.api.ModelFetcher;
 import io.gravitee.reactive.webclient.api.ModelFileType;
+import io.reactivex.rxjava3.core.Completable;
 import io.reactivex.rxjava3.core.Observable;
 import io.reactivex.rxjava3.core.Single;
+import io.reactivex.rxjava3.subjects.SingleSubject;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonObject;
 import io.vertx.rxjava3.core.Vertx;
 import io.vertx.rxjava3.core.eventbus.EventBus;
 import io.vertx.rxjava3.core.eventbus.Message;
@@ -42,6 +46,7 @@ import io.vertx.rxjava3.core.eventbus.MessageConsumer;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -132,6 +137,7 @@ public class ModelHandlerTest {
     InferenceRequest request = new InferenceRequest(START, payload);
     when(message.body()).thenReturn(Json.encodeToBuffer(request));
     InferenceHandler model = mock(InferenceHandler.class);
+    when(model.warmUp()).thenReturn(Completable.complete());
     when(modelProvider.provide(any(), any())).thenReturn(Single.just(model));
 
     fromRunnable(() -> modelHandler.handle(message))
@@ -165,6 +171,31 @@ public class ModelHandlerTest {
     verify(message, times(2)).reply(any());
   }
 
+  @Test
+  public void must_stop_inference_handler_failing_to_start() {
+    var stopped = new AtomicBoolean();
+    when(messageConsumer.toObservable()).thenReturn(
+      Observable.<Message<Buffer>>never().doOnDispose(() -> stopped.set(true))
+    );
+    InferenceRequest request = new InferenceRequest(
+      START,
+      Map.of(INFERENCE_FORMAT, InferenceFormat.ONNX_BERT)
+    );
+    when(message.body()).thenReturn(Json.encodeToBuffer(request));
+    when(modelProvider.provide(any(), any())).thenReturn(
+      Single.error(new IllegalStateException("Broken model"))
+    );
+
+    modelHandler.handle(message);
+
+    verify(message).fail(
+      500,
+      "Failed to start inference handler: Broken model"
+    );
+    assertTrue(stopped.get());
+    assertTrue(modelHandler.metrics().isEmpty());
+  }
+
   @Test
   public void must_handle_stop_model_action() {
     InferenceRequest request = new InferenceRequest(
@@ -201,6 +232,132 @@ public class ModelHandlerTest {
     verify(message).fail(405, "Unsupported action: null");
   }
 
+  @Test
+  public void must_reply_with_stats_of_all_models() {
+    when(message.body()).thenReturn(
+      Buffer.buffer("{\"action\":\"STATS\",\"payload\":{}}")
+    );
+
+    modelHandler.handle(message);
+
+    verify(message).reply(Buffer.buffer("{\"models\":[]}"));
+  }
+
+  @Test
+  public void must_fail_stats_of_unknown_model() {
+    when(message.body()).thenReturn(
+      Buffer.buffer(
+        "{\"action\":\"STATS\",\"payload\":{\"modelAddress\":\"unknown\"}}"
+      )
+    );
+
+    modelHandler.handle(message);
+
+    verify(message).fail(
+      404,
+      "Could not find inference handler for address: unknown"
+    );
+  }
+
+  @Test
+  public void must_fail_swap_of_unknown_model() {
+    when(message.body()).thenReturn(
+      Buffer.buffer(
+        "{\"action\":\"SWAP\",\"payload\":{\"modelAddress\":\"unknown\"}}"
+      )
+    );
+
+    modelHandler.handle(message);
+
+    verify(message).fail(
+      404,
+      "Could not find inference handler for address: unknown"
+    );
+  }
+
+  @Test
+  public void must_release_model_swapped_in_at_stopped_address() {
+    InferenceHandler model = mock(InferenceHandler.class);
+    when(model.warmUp()).thenReturn(Completable.complete());
+    var swapped = SingleSubject.<InferenceHandler>create();
+    when(modelProvider.provide(any(), any())).thenReturn(
+      Single.just(model),
+      swapped
+    );
+    when(message.body()).thenReturn(
+      Json.encodeToBuffer(
+        new InferenceRequest(
+          START,
+          Map.of(INFERENCE_FORMAT, InferenceFormat.ONNX_BERT)
+        )
+      )
+    );
+    modelHandler.handle(message);
+    ArgumentCaptor<Buffer> captor = ArgumentCaptor.forClass(Buffer.class);
+    verify(message).reply(captor.capture());
+    var address = captor.getValue().toString();
+
+    when(message.body()).thenReturn(
+      new JsonObject()
+        .put("action", "SWAP")
+        .put(
+          "payload",
+          new JsonObject()
+            .put(MODEL_ADDRESS_KEY, address)
+            .put(INFERENCE_FORMAT, InferenceFormat.ONNX_BERT)
+        )
+        .toBuffer()
+    );
+    modelHandler.handle(message);
+    when(message.body()).thenReturn(
+      Json.encodeToBuffer(
+        new InferenceRequest(STOP, Map.of(MODEL_ADDRESS_KEY, address))
+      )
+    );
+    modelHandler.handle(message);
+    InferenceHandler newModel = mock(InferenceHandler.class);
+    when(newModel.warmUp()).thenReturn(Completable.complete());
+    swapped.onSuccess(newModel);
+
+    verify(message).fail(
+      404,
+      "Could not find inference handler for address: " + address
+    );
+    verify(repository, timeout(2000)).remove(newModel);
+  }
+
+  @Test
+  public void must_release_model_started_at_stopped_address() {
+    var started = SingleSubject.<InferenceHandler>create();
+    when(modelProvider.provide(any(), any())).thenReturn(started);
+    when(message.body()).thenReturn(
+      Json.encodeToBuffer(
+        new InferenceRequest(
+          START,
+          Map.of(INFERENCE_FORMAT, InferenceFormat.ONNX_BERT)
+        )
+      )
+    );
+    modelHandler.handle(message);
+    var address = modelHandler.metrics().getFirst().address();
+
+    when(message.body()).thenReturn(
+      Json.encodeToBuffer(
+        new InferenceRequest(STOP, Map.of(MODEL_ADDRESS_KEY, address))
+      )
+    );
+    modelHandler.handle(message);
+    InferenceHandler model = mock(InferenceHandler.class);
+    when(model.warmUp()).thenReturn(Completable.complete());
+    started.onSuccess(model);
+
+    verify(message).fail(
+      404,
+      "Could not find inference handler for address: " + address
+    );
+    verify(repository, timeout(2000)).remove(model);
+  }
+
   @Test
   public void must_handle_unknown_exception() {
     when(message.body()).thenThrow(new RuntimeException("Test exception"));
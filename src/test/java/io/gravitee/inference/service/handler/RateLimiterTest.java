@@ -0,0 +1,91 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.inference.service.handler;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.gravitee.inference.service.handler.config.RateLimitConfig;
+import io.reactivex.rxjava3.schedulers.TestScheduler;
+import io.vertx.core.eventbus.ReplyException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author GraviteeSource Team
+ */
+public class RateLimiterTest {
+
+  private final TestScheduler scheduler = new TestScheduler();
+
+  @Test
+  void must_spread_requests_beyond_quota() {
+    var limiter = limiter(new RateLimitConfig(60, 0, 1_500));
+
+    assertEquals(0, limiter.reserve(1));
+    assertEquals(TimeUnit.SECONDS.toNanos(1), limiter.reserve(1));
+    assertEquals(-1, limiter.reserve(1));
+
+    scheduler.advanceTimeBy(2, TimeUnit.SECONDS);
+    assertEquals(0, limiter.reserve(1));
+  }
+
+  @Test
+  void must_wait_for_estimated_tokens() {
+    var limiter = limiter(new RateLimitConfig(0, 600, 10_000));
+
+    assertEquals(0, limiter.reserve(10));
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(500), limiter.reserve(5));
+    assertEquals(4, RateLimiter.estimateTokens(List.of("abcd", "abcde", "")));
+  }
+
+  @Test
+  void must_reject_calls_held_longer_than_queue_time() {
+    var limiter = limiter(new RateLimitConfig(0, 0, 1_000));
+
+    limiter.pause(2_000);
+    limiter
+      .acquire(List.of("Hello"))
+      .test()
+      .assertError(
+        error ->
+          error instanceof ReplyException reply && reply.failureCode() == 429
+      );
+
+    scheduler.advanceTimeBy(1_500, TimeUnit.MILLISECONDS);
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(500), limiter.reserve(1));
+  }
+
+  @Test
+  void must_hold_waiting_calls_when_paused() {
+    var limiter = limiter(new RateLimitConfig(60, 0, 5_000));
+    limiter.acquire(List.of("Hello")).test().assertComplete();
+
+    var waiting = limiter.acquire(List.of("Hello")).test();
+    limiter.pause(2_000);
+    scheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+    waiting.assertNotComplete();
+
+    scheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+    waiting.assertComplete();
+  }
+
+  private RateLimiter limiter(RateLimitConfig config) {
+    return new RateLimiter(config, scheduler, () ->
+      scheduler.now(TimeUnit.NANOSECONDS)
+    );
+  }
+}
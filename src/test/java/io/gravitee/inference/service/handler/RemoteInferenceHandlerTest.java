@@ -0,0 +1,105 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.inference.service.handler;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.gravitee.inference.rest.RestInference;
+
+import io.gravitee.inference.service.handler.config.BatchConfig;
+import io.gravitee.inference.service.handler.config.CacheConfig;
+import io.gravitee.inference.service.handler.config.CircuitBreakerConfig;
+import io.gravitee.inference.service.handler.config.RateLimitConfig;
+import io.gravitee.inference.service.handler.config.WorkerConfig;
+import io.gravitee.inference.service.model.RemoteModelFactory;
+import io.reactivex.rxjava3.core.Maybe;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author GraviteeSource Team
+ */
+public class RemoteInferenceHandlerTest {
+
+  private static final String URI = "http://localhost/embeddings";
+
+  @Test
+  void must_share_model_key_across_address_settings() {
+    var tuned = handler(
+      Map.of(
+        RemoteModelFactory.URI,
+        URI,
+        BatchConfig.BATCH_MAX_SIZE,
+        8,
+        CacheConfig.CACHE_MAX_ENTRIES,
+        100,
+        WorkerConfig.WORKER_THREADS,
+        2
+      )
+    );
+
+    assertEquals(
+      handler(Map.of(RemoteModelFactory.URI, URI)).key(),
+      tuned.key()
+    );
+    assertNotEquals(
+      handler(Map.of(RemoteModelFactory.URI, URI + "/v2")).key(),
+      tuned.key()
+    );
+  }
+
+  @Test
+  void must_not_time_rate_limit_wait_as_slow_call() {
+    RestInference<Object, Object, Object> model = mock();
+    when(model.infer(any())).thenReturn(Maybe.just("embedding"));
+    RemoteModelFactory modelFactory = mock();
+    doReturn(model).when(modelFactory).build(any());
+    var handler = new RemoteInferenceHandler(
+      Map.of(
+        RemoteModelFactory.URI,
+        URI,
+        // One call every 500 ms
+        RateLimitConfig.RATE_LIMIT_REQUESTS_PER_MINUTE,
+        120,
+        CircuitBreakerConfig.CIRCUIT_BREAKER,
+        true,
+        CircuitBreakerConfig.CIRCUIT_WINDOW_SIZE,
+        1,
+        CircuitBreakerConfig.CIRCUIT_SLOW_CALL_MILLIS,
+        200
+      ),
+      modelFactory
+    );
+    handler.loadModel();
+
+    for (int i = 0; i < 3; i++) {
+      handler
+        .infer("input " + i)
+        .test()
+        .awaitDone(5, TimeUnit.SECONDS)
+        .assertValue("embedding");
+    }
+  }
+
+  private static RemoteInferenceHandler handler(Map<String, Object> payload) {
+    return new RemoteInferenceHandler(payload, mock(RemoteModelFactory.class));
+  }
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.inference.service.handler;
+
+import static io.vertx.core.eventbus.ReplyFailure.RECIPIENT_FAILURE;
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.gravitee.inference.service.handler.config.UpstreamConfig;
+import io.gravitee.inference.service.model.UpstreamException;
+import io.reactivex.rxjava3.core.Completable;
+import io.reactivex.rxjava3.core.Single;
+import io.vertx.core.Context;
+import io.vertx.core.VertxException;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.rxjava3.core.RxHelper;
+import io.vertx.rxjava3.core.Vertx;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author GraviteeSource Team
+ */
+public class UpstreamCallsTest {
+
+  private final Vertx vertx = Vertx.vertx();
+  private final AtomicInteger attempts = new AtomicInteger();
+
+  @AfterEach
+  void tearDown() {
+    vertx.close().blockingAwait();
+  }
+
+  @Test
+  void must_retry_retryable_failures() {
+    var calls = calls(new UpstreamConfig(0, 2, 1, 4, false, 0));
+
+    calls
+      .call(() ->
+        attempts.incrementAndGet() < 3
+          ? Single.error(new UpstreamException(503, "Unavailable"))
+          : Single.just("embedding")
+      )
+      .test()
+      .awaitDone(5, TimeUnit.SECONDS)
+      .assertValue("embedding");
+    assertEquals(3, attempts.get());
+  }
+
+  @Test
+  void must_retry_on_vertx_thread() {
+    var calls = calls(new UpstreamConfig(0, 1, 1, 4, false, 0));
+    var onVertxThread = new AtomicBoolean();
+
+    calls
+      .call(() -> {
+        if (attempts.incrementAndGet() == 1) {
+          return Single.error(new UpstreamException(503, "Unavailable", 10));
+        }
+        onVertxThread.set(Context.isOnVertxThread());
+        return Single.just("embedding");
+      })
+      .test()
+      .awaitDone(5, TimeUnit.SECONDS)
+      .assertValue("embedding");
+    assertTrue(onVertxThread.get());
+  }
+
+  @Test
+  void must_forward_rejected_input_without_retry() {
+    var calls = calls(new UpstreamConfig(0, 2, 1, 4, false, 0));
+
+    calls
+      .call(() -> {
+        attempts.incrementAndGet();
+        return Single.error(new UpstreamException(400, "Input too long"));
+      })
+      .test()
+      .awaitDone(5, TimeUnit.SECONDS)
+      .assertError(error -> failureCode(error) == 400);
+    assertEquals(1, attempts.get());
+  }
+
+  @Test
+  void must_retry_failure_status_of_library_client() {
+    var calls = calls(new UpstreamConfig(0, 2, 1, 4, false, 0));
+
+    calls
+      .call(() ->
+        attempts.incrementAndGet() < 3
+          ? Single.error(
+            new VertxException(
+              "Response status code 503 is not between 200 and 300"
+            )
+          )
+          : Single.just("embedding")
+      )
+      .test()
+      .awaitDone(5, TimeUnit.SECONDS)
+      .assertValue("embedding");
+    assertEquals(3, attempts.get());
+  }
+
+  @Test
+  void must_forward_rejected_input_of_library_client() {
+    var calls = calls(new UpstreamConfig(0, 2, 1, 4, false, 0));
+
+    calls
+      .call(() -> {
+        attempts.incrementAndGet();
+        return Single.error(new IllegalStateException("HTTP 422: Too long"));
+      })
+      .test()
+      .awaitDone(5, TimeUnit.SECONDS)
+      .assertError(error -> failureCode(error) == 422);
+    assertEquals(1, attempts.get());
+  }
+
+  @Test
+  void must_time_out_hung_upstream() {
+    var calls = calls(new UpstreamConfig(50, 1, 1, 4, false, 0));
+
+    calls
+      .call(() -> {
+        attempts.incrementAndGet();
+        return Single.never();
+      })
+      .test()
+      .awaitDone(5, TimeUnit.SECONDS)
+      .assertError(error -> failureCode(error) == 504);
+    assertEquals(2, attempts.get());
+  }
+
+  @Test
+  void must_hedge_slow_attempt() {
+    var calls = calls(new UpstreamConfig(0, 0, 1, 4, true, 20));
+
+    calls
+      .call(() ->
+        attempts.incrementAndGet() == 1
+          ? Single.never()
+          : Single.just("hedged")
+      )
+      .test()
+      .awaitDone(5, TimeUnit.SECONDS)
+      .assertValue("hedged");
+    assertEquals(2, attempts.get());
+  }
+
+  @Test
+  void must_wait_for_hedge_when_first_attempt_fails() {
+    var calls = calls(new UpstreamConfig(0, 0, 1, 4, true, 20));
+
+    calls
+      .call(() ->
+        attempts.incrementAndGet() == 1
+          ? Single.<String>error(new UpstreamException(503, "Unavailable"))
+          : Single.just("hedged")
+      )
+      .test()
+      .awaitDone(5, TimeUnit.SECONDS)
+      .assertValue("hedged");
+    assertEquals(2, attempts.get());
+  }
+
+  @Test
+  void must_fail_hedged_call_once_both_attempts_failed() {
+    var calls = calls(new UpstreamConfig(0, 0, 1, 4, true, 20));
+
+    calls
+      .call(() -> {
+        attempts.incrementAndGet();
+        return Single.<String>error(new UpstreamException(503, "Unavailable"));
+      })
+      .test()
+      .awaitDone(5, TimeUnit.SECONDS)
+      .assertError(error -> failureCode(error) == 502);
+    assertEquals(2, attempts.get());
+  }
+
+  @Test
+  void must_admit_every_attempt() {
+    var calls = calls(new UpstreamConfig(0, 2, 1, 4, false, 0));
+    var admissions = new AtomicInteger();
+
+    calls
+      .call(Completable.fromRunnable(admissions::incrementAndGet), () ->
+        attempts.incrementAndGet() < 3
+          ? Single.error(new UpstreamException(503, "Unavailable"))
+          : Single.just("embedding")
+      )
+      .test()
+      .awaitDone(5, TimeUnit.SECONDS)
+      .assertValue("embedding");
+    assertEquals(3, admissions.get());
+  }
+
+  @Test
+  void must_give_up_hedging_when_hedge_is_not_admitted() {
+    var calls = calls(new UpstreamConfig(0, 0, 1, 4, true, 20));
+    var admissions = new AtomicInteger();
+    var admission = Completable.defer(() ->
+      admissions.incrementAndGet() == 1
+        ? Completable.complete()
+        : Completable.error(new ReplyException(RECIPIENT_FAILURE, 429, "Busy"))
+    );
+
+    calls
+      .call(admission, () -> {
+        attempts.incrementAndGet();
+        return Single.timer(100, TimeUnit.MILLISECONDS).map(__ -> "slow");
+      })
+      .test()
+      .awaitDone(5, TimeUnit.SECONDS)
+      .assertValue("slow");
+    assertEquals(1, attempts.get());
+    assertEquals(2, admissions.get());
+  }
+
+  private UpstreamCalls calls(UpstreamConfig config) {
+    return new UpstreamCalls(config, RxHelper.scheduler(vertx));
+  }
+
+  private static int failureCode(Throwable error) {
+    return error instanceof ReplyException reply ? reply.failureCode() : -1;
+  }
+}
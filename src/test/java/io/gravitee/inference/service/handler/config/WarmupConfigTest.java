@@ -0,0 +1,63 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.inference.service.handler.config;
+
+import static io.gravitee.inference.service.handler.config.WarmupConfig.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author GraviteeSource Team
+ */
+public class WarmupConfigTest {
+
+  @Test
+  void must_be_disabled_by_default() {
+    var config = WarmupConfig.fromPayload(Map.of());
+
+    assertFalse(config.isEnabled());
+    assertEquals(DEFAULT_SEQUENCE_LENGTHS, config.sequenceLengths());
+    assertTrue(config.inputs(512).isEmpty());
+  }
+
+  @Test
+  void must_cycle_through_sequence_lengths() {
+    var config = WarmupConfig.fromPayload(
+      Map.of(WARMUP_ITERATIONS, 5, WARMUP_SEQUENCE_LENGTHS, List.of(2, 9))
+    );
+
+    var inputs = config.inputs(512);
+
+    assertEquals(List.of(2, 9, 2, 9, 2), words(inputs));
+    assertEquals("the quick", inputs.getFirst());
+  }
+
+  @Test
+  void must_cap_inputs_at_max_sequence_length() {
+    var config = WarmupConfig.fromPayload(
+      Map.of(WARMUP_ITERATIONS, 2, WARMUP_SEQUENCE_LENGTHS, List.of(16, 600))
+    );
+
+    assertEquals(List.of(16, 510), words(config.inputs(510)));
+  }
+
+  private static List<Integer> words(List<String> inputs) {
+    return inputs.stream().map(input -> input.split(" ").length).toList();
+  }
+}
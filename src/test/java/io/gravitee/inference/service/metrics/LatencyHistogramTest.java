@@ -0,0 +1,60 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.inference.service.metrics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author GraviteeSource Team
+ */
+public class LatencyHistogramTest {
+
+  @Test
+  void must_report_percentiles_within_bucket_precision() {
+    var histogram = new LatencyHistogram();
+    for (int i = 1; i <= 1000; i++) {
+      histogram.record(i * 1_000L);
+    }
+
+    var snapshot = histogram.snapshot();
+
+    assertEquals(1000, snapshot.count());
+    assertEquals(500.5, snapshot.mean(), 0.001);
+    assertEquals(1000, snapshot.max());
+    assertEquals(500, snapshot.p50(), 500 * 0.07);
+    assertEquals(990, snapshot.p99(), 990 * 0.07);
+    assertTrue(snapshot.p999() <= snapshot.max());
+  }
+
+  @Test
+  void must_map_values_to_buckets_containing_them() {
+    var values = new long[] { 0, 15, 16, 33, 1_000_003, Long.MAX_VALUE };
+    for (long value : values) {
+      var index = LatencyHistogram.index(value);
+      assertTrue(value <= LatencyHistogram.highestValue(index));
+      assertTrue(
+        index == 0 || value > LatencyHistogram.highestValue(index - 1)
+      );
+    }
+  }
+
+  @Test
+  void must_report_empty_snapshot() {
+    assertEquals(0, new LatencyHistogram().snapshot().count());
+  }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.inference.service.model;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.gravitee.inference.service.handler.config.HttpClientConfig;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.rxjava3.core.Vertx;
+import io.vertx.rxjava3.core.http.HttpServer;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author GraviteeSource Team
+ */
+public class OpenAIBatchEmbeddingInferenceTest {
+
+  private Vertx vertx;
+  private HttpServer server;
+  private final AtomicReference<JsonObject> received = new AtomicReference<>();
+  // Entries are deliberately returned out of order
+  private final AtomicReference<JsonArray> data = new AtomicReference<>(
+    new JsonArray()
+      .add(embedding(1, new JsonArray().add(0.3).add(0.4)))
+      .add(embedding(0, new JsonArray().add(0.1).add(0.2)))
+  );
+
+  @BeforeEach
+  void setUp() {
+    vertx = Vertx.vertx();
+    server = vertx
+      .createHttpServer()
+      .requestHandler(request ->
+        request
+          .body()
+          .subscribe(body -> {
+            received.set(body.toJsonObject());
+            var response = new JsonObject()
+              .put("data", data.get())
+              .put("usage", new JsonObject().put("prompt_tokens", 9));
+            request.response().end(response.encode()).subscribe();
+          })
+      )
+      .listen(0)
+      .blockingGet();
+  }
+
+  @AfterEach
+  void tearDown() {
+    vertx.close().blockingAwait();
+  }
+
+  @Test
+  void must_embed_all_inputs_in_one_request() {
+    var inference = inference();
+
+    var embeddings = inference
+      .infer(List.of("Hello", "Hello world"))
+      .timeout(5, TimeUnit.SECONDS)
+      .blockingGet();
+
+    assertEquals(
+      new JsonArray().add("Hello").add("Hello world"),
+      received.get().getJsonArray("input")
+    );
+    assertEquals("float", received.get().getString("encoding_format"));
+    assertEquals(2, embeddings.size());
+    assertArrayEquals(
+      new float[] { 0.1f, 0.2f },
+      embeddings.get(0).embedding()
+    );
+    assertArrayEquals(
+      new float[] { 0.3f, 0.4f },
+      embeddings.get(1).embedding()
+    );
+    assertEquals(
+      9,
+      embeddings.get(0).tokenCount() + embeddings.get(1).tokenCount()
+    );
+  }
+
+  @Test
+  void must_reject_embeddings_with_invalid_indexes() {
+    var vector = new JsonArray().add(0.1);
+    for (var index : List.of(2, 0)) {
+      data.set(
+        new JsonArray().add(embedding(0, vector)).add(embedding(index, vector))
+      );
+
+      inference()
+        .infer(List.of("Hello", "Hello world"))
+        .test()
+        .awaitDone(5, TimeUnit.SECONDS)
+        .assertError(
+          error ->
+            error instanceof UpstreamException upstream &&
+            upstream.statusCode() == 502
+        );
+    }
+  }
+
+  @Test
+  void must_split_token_usage_by_input_length() {
+    assertArrayEquals(
+      new int[] { 2, 8 },
+      OpenAIBatchEmbeddingInference.splitTokens(10, List.of("ab", "abcdefgh"))
+    );
+    assertArrayEquals(
+      new int[] { 0, 0 },
+      OpenAIBatchEmbeddingInference.splitTokens(0, List.of("", ""))
+    );
+  }
+
+  @Test
+  void must_read_how_long_to_wait_from_headers() {
+    assertEquals(
+      1_500,
+      OpenAIBatchEmbeddingInference.throttleMillis(
+        Map.of("retry-after", "1.5")::get
+      )
+    );
+    assertEquals(
+      6_020,
+      OpenAIBatchEmbeddingInference.throttleMillis(
+        Map.of(
+          "x-ratelimit-remaining-requests",
+          "0",
+          "x-ratelimit-reset-requests",
+          "6s20ms",
+          "x-ratelimit-remaining-tokens",
+          "150",
+          "x-ratelimit-reset-tokens",
+          "1m0s"
+        )::get
+      )
+    );
+    assertEquals(0, OpenAIBatchEmbeddingInference.throttleMillis(name -> null));
+  }
+
+  private OpenAIBatchEmbeddingInference inference() {
+    var uri = URI.create("http://localhost:" + server.actualPort() + "/v1");
+    return new OpenAIBatchEmbeddingInference(
+      uri,
+      "FAKE_KEY",
+      null,
+      null,
+      "all-minilm",
+      null,
+      "FLOAT",
+      new RemoteClients(vertx).acquire(uri, HttpClientConfig.defaults())
+    );
+  }
+
+  private static JsonObject embedding(int index, JsonArray vector) {
+    return new JsonObject().put("index", index).put("embedding", vector);
+  }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.inference.service.model;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import ai.onnxruntime.OrtEnvironment;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author GraviteeSource Team
+ */
+public class OptimizedModelCacheTest {
+
+  @TempDir
+  Path directory;
+
+  private Path model;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    model = Files.writeString(directory.resolve("model.onnx"), "model");
+  }
+
+  @Test
+  void must_key_optimized_models_by_content() throws Exception {
+    var optimized = OptimizedModelCache.path(model);
+
+    assertEquals(
+      directory.resolve(OptimizedModelCache.DIRECTORY),
+      optimized.getParent()
+    );
+    assertEquals(optimized, OptimizedModelCache.path(model));
+
+    Files.writeString(model, "other model");
+    assertNotEquals(optimized, OptimizedModelCache.path(model));
+  }
+
+  @Test
+  void must_load_optimized_graph_of_model() throws Exception {
+    writeIdentityModel(model);
+    var loaded = new ArrayList<Path>();
+
+    OptimizedModelCache.load(model, loaded::add);
+
+    var optimized = OptimizedModelCache.path(model);
+    assertEquals(List.of(optimized), loaded);
+    // The saved graph is a model ONNX Runtime loads
+    try (
+      var session = OrtEnvironment.getEnvironment().createSession(
+        optimized.toString()
+      )
+    ) {
+      assertEquals(List.of("x"), List.copyOf(session.getInputNames()));
+    }
+  }
+
+  @Test
+  void must_reuse_saved_graph() throws Exception {
+    writeIdentityModel(model);
+    OptimizedModelCache.load(model, path -> path);
+    var optimized = OptimizedModelCache.path(model);
+    var savedAt = Files.getLastModifiedTime(optimized);
+
+    assertEquals(
+      optimized,
+      OptimizedModelCache.load(model, path -> path)
+    );
+
+    assertEquals(savedAt, Files.getLastModifiedTime(optimized));
+    try (var files = Files.list(optimized.getParent())) {
+      assertEquals(List.of(optimized), files.toList());
+    }
+  }
+
+  @Test
+  void must_load_model_when_saved_graph_fails_to_load() throws Exception {
+    var optimized = OptimizedModelCache.path(model);
+    Files.writeString(optimized, "corrupted");
+    var loaded = new ArrayList<Path>();
+
+    var result = OptimizedModelCache.load(model, path -> {
+      loaded.add(path);
+      if (path.equals(optimized)) {
+        throw new IllegalStateException("Invalid model");
+      }
+      return "session";
+    });
+
+    assertEquals("session", result);
+    assertEquals(List.of(optimized, model), loaded);
+    assertFalse(Files.exists(optimized));
+  }
+
+  /**
+   * Writes an ONNX model copying its float input {@code x} to its output
+   * {@code y}.
+   */
+  private static void writeIdentityModel(Path path) throws Exception {
+    var node = message(
+      1,
+      string(1, "x"),
+      string(2, "y"),
+      string(4, "Identity")
+    );
+    var graph = message(
+      7,
+      node,
+      string(2, "graph"),
+      valueInfo(11, "x"),
+      valueInfo(12, "y")
+    );
+    // IR version 8, opset 13
+    var opset = message(8, varint(2, 13));
+    Files.write(path, concat(varint(1, 8), opset, graph));
+  }
+
+  private static byte[] valueInfo(int field, String name) {
+    var shape = message(2, message(1, varint(1, 1)));
+    var tensor = message(1, varint(1, 1), shape);
+    return message(field, string(1, name), message(2, tensor));
+  }
+
+  private static byte[] string(int field, String value) {
+    return message(field, value.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static byte[] message(int field, byte[]... parts) {
+    var body = concat(parts);
+    return concat(tag(field, 2), encode(body.length), body);
+  }
+
+  private static byte[] varint(int field, long value) {
+    return concat(tag(field, 0), encode(value));
+  }
+
+  private static byte[] tag(int field, int wireType) {
+    return encode((field << 3) | wireType);
+  }
+
+  private static byte[] encode(long value) {
+    var out = new ByteArrayOutputStream();
+    while ((value & ~0x7FL) != 0) {
+      out.write((int) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    out.write((int) value);
+    return out.toByteArray();
+  }
+
+  private static byte[] concat(byte[]... parts) {
+    var out = new ByteArrayOutputStream();
+    for (var part : parts) {
+      out.writeBytes(part);
+    }
+    return out.toByteArray();
+  }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.inference.service.model;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.gravitee.inference.api.classifier.ClassifierResult;
+import io.gravitee.inference.api.classifier.ClassifierResults;
+import io.gravitee.inference.api.embedding.EmbeddingTokenCount;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author GraviteeSource Team
+ */
+public class QuantizationReportTest {
+
+  @Test
+  void must_compare_embeddings_by_cosine_similarity() {
+    var report = QuantizationReport.compare(
+      List.of(embedding(1, 0), embedding(1, 1)),
+      List.of(embedding(2, 0), embedding(1, 0))
+    );
+
+    assertEquals(2, report.samples());
+    assertEquals((1 + Math.sqrt(0.5)) / 2, report.meanSimilarity(), 1e-6);
+    assertEquals(Math.sqrt(0.5), report.minSimilarity(), 1e-6);
+  }
+
+  @Test
+  void must_compare_classifications_by_labels() {
+    var report = QuantizationReport.compare(
+      List.of(labels("POSITIVE"), labels("NEGATIVE")),
+      List.of(labels("POSITIVE"), labels("POSITIVE"))
+    );
+
+    assertEquals(0.5, report.meanSimilarity());
+    assertEquals(0, report.minSimilarity());
+  }
+
+  private static EmbeddingTokenCount embedding(float... values) {
+    return new EmbeddingTokenCount(values, values.length);
+  }
+
+  private static ClassifierResults labels(String label) {
+    return new ClassifierResults(List.of(new ClassifierResult(label, 0.9f)));
+  }
+}
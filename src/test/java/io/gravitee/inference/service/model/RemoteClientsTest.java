@@ -0,0 +1,76 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.inference.service.model;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.gravitee.inference.api.utils.ConfigWrapper;
+import io.gravitee.inference.service.handler.config.HttpClientConfig;
+import io.vertx.rxjava3.core.Vertx;
+import java.net.URI;
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author GraviteeSource Team
+ */
+public class RemoteClientsTest {
+
+  private Vertx vertx;
+  private RemoteClients clients;
+
+  @BeforeEach
+  void setUp() {
+    vertx = Vertx.vertx();
+    clients = new RemoteClients(vertx);
+  }
+
+  @AfterEach
+  void tearDown() {
+    vertx.close().blockingAwait();
+  }
+
+  @Test
+  void must_share_client_per_host_and_config() {
+    var config = HttpClientConfig.defaults();
+    var first = clients.acquire(URI.create("https://api.host/v1"), config);
+    var second = clients.acquire(URI.create("https://API.host:443/v2"), config);
+    var http2 = clients.acquire(
+      URI.create("https://api.host/v1"),
+      HttpClientConfig.fromConfig(
+        new ConfigWrapper(Map.of(HttpClientConfig.HTTP_VERSION, "http_2"))
+      )
+    );
+
+    assertSame(first, second);
+    assertNotSame(first, http2);
+    assertEquals(2, clients.size());
+  }
+
+  @Test
+  void must_close_client_once_released_by_every_model() {
+    var uri = URI.create("http://localhost:8080");
+    var first = clients.acquire(uri, HttpClientConfig.defaults());
+    clients.acquire(uri, HttpClientConfig.defaults());
+
+    first.release();
+    assertEquals(1, clients.size());
+    first.release();
+    assertEquals(0, clients.size());
+  }
+}
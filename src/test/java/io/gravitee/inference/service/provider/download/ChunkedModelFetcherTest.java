@@ -0,0 +1,284 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.inference.service.provider.download;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.gravitee.inference.service.provider.config.DownloadConfig;
+import io.gravitee.inference.service.repository.ModelKeys;
+import io.gravitee.reactive.webclient.api.FetchModelConfig;
+import io.gravitee.reactive.webclient.api.ModelFile;
+import io.gravitee.reactive.webclient.api.ModelFileType;
+import io.reactivex.rxjava3.core.Single;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.rxjava3.core.Vertx;
+import io.vertx.rxjava3.core.http.HttpServerRequest;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author GraviteeSource Team
+ */
+public class ChunkedModelFetcherTest {
+
+  private static final String MODEL_NAME = "org/model";
+  private static final String FILE_NAME = "onnx/model.onnx";
+
+  @TempDir
+  Path directory;
+
+  private Vertx vertx;
+  private int port;
+  private byte[] content;
+  private String etag;
+  private String token;
+  private boolean redirect;
+  private final List<String> ranges = new CopyOnWriteArrayList<>();
+  private final List<String> authorizations = new CopyOnWriteArrayList<>();
+
+  @BeforeEach
+  void setUp() {
+    vertx = Vertx.vertx();
+    content = new byte[100];
+    for (int i = 0; i < content.length; i++) {
+      content[i] = (byte) i;
+    }
+    etag = ModelKeys.sha256(content);
+    port = vertx
+      .createHttpServer()
+      .requestHandler(this::serve)
+      .listen(0)
+      .blockingGet()
+      .actualPort();
+  }
+
+  @AfterEach
+  void tearDown() {
+    vertx.close().blockingAwait();
+  }
+
+  @Test
+  void must_fetch_large_files_in_verified_ranges() throws Exception {
+    var path = fetch(16);
+
+    assertArrayEquals(content, Files.readAllBytes(path));
+    assertEquals(7, ranges.size());
+    assertEquals(
+      etag,
+      Files.readString(Path.of(path + ChunkedModelFetcher.DIGEST_SUFFIX))
+    );
+    try (var files = Files.list(path.getParent())) {
+      assertEquals(2, files.count());
+    }
+  }
+
+  @Test
+  void must_not_fetch_files_already_present() {
+    fetch(16);
+    ranges.clear();
+
+    fetch(16);
+
+    assertTrue(ranges.isEmpty());
+  }
+
+  @Test
+  void must_link_files_already_in_blob_store() throws Exception {
+    var path = fetch(16);
+    ranges.clear();
+
+    var other = fetch(16, directory.resolve("other"));
+
+    assertTrue(ranges.isEmpty());
+    assertTrue(Files.isSameFile(path, other));
+    assertTrue(Files.isSameFile(path, blobs().path(etag)));
+  }
+
+  @Test
+  void must_collect_unreferenced_blobs_beyond_quota() throws Exception {
+    var path = fetch(16);
+    var blobs = new BlobStore(directory.resolve(".blobs"), 1);
+
+    blobs.collect();
+    assertTrue(Files.exists(blobs.path(etag)));
+
+    Files.delete(path);
+    blobs.collect();
+    assertFalse(Files.exists(blobs.path(etag)));
+  }
+
+  @Test
+  void must_resume_partial_download() throws Exception {
+    var part = directory.resolve(FILE_NAME + ChunkedModelFetcher.PART_SUFFIX);
+    Files.createDirectories(part.getParent());
+    Files.write(part, Arrays.copyOf(content, 10));
+
+    var path = fetch(1024);
+
+    assertEquals(List.of("bytes=10-99"), ranges);
+    assertArrayEquals(content, Files.readAllBytes(path));
+  }
+
+  @Test
+  void must_fetch_again_part_larger_than_its_range() throws Exception {
+    var part = directory.resolve(FILE_NAME + ChunkedModelFetcher.PART_SUFFIX);
+    Files.createDirectories(part.getParent());
+    Files.write(part, new byte[150]);
+
+    var path = fetch(1024);
+
+    assertEquals(List.of("bytes=0-99"), ranges);
+    assertArrayEquals(content, Files.readAllBytes(path));
+  }
+
+  @Test
+  void must_fetch_file_once_for_concurrent_fetches() {
+    var fetcher = fetcher(16);
+
+    var first = fetchModel(fetcher, directory).test();
+    var second = fetchModel(fetcher, directory).test();
+
+    first.awaitDone(5, TimeUnit.SECONDS).assertComplete();
+    second.awaitDone(5, TimeUnit.SECONDS).assertComplete();
+    assertEquals(7, ranges.size());
+  }
+
+  @Test
+  void must_send_token_to_hub_only() throws Exception {
+    token = "secret";
+    redirect = true;
+
+    var path = fetch(1024);
+
+    assertArrayEquals(content, Files.readAllBytes(path));
+    assertEquals(
+      List.of("HEAD Bearer secret", "GET Bearer secret", "GET null"),
+      authorizations
+    );
+  }
+
+  @Test
+  void must_reject_checksum_mismatch() {
+    etag = ModelKeys.sha256(new byte[] { 1 });
+
+    var error = assertThrows(RuntimeException.class, () -> fetch(16));
+
+    assertTrue(error.getMessage().contains("Checksum mismatch"));
+    assertFalse(Files.exists(directory.resolve(FILE_NAME)));
+  }
+
+  private Path fetch(long chunkBytes) {
+    return fetch(chunkBytes, directory);
+  }
+
+  private Path fetch(long chunkBytes, Path output) {
+    var files = fetchModel(fetcher(chunkBytes), output)
+      .timeout(5, TimeUnit.SECONDS)
+      .blockingGet();
+    var path = output.resolve(FILE_NAME);
+    assertEquals(Map.of(ModelFileType.MODEL, path.toString()), files);
+    return path;
+  }
+
+  private ChunkedModelFetcher fetcher(long chunkBytes) {
+    return new ChunkedModelFetcher(
+      vertx,
+      new DownloadConfig(
+        "http://localhost:" + port,
+        "main",
+        token,
+        null,
+        chunkBytes,
+        4,
+        0
+      ),
+      blobs()
+    );
+  }
+
+  private static Single<Map<ModelFileType, String>> fetchModel(
+    ChunkedModelFetcher fetcher,
+    Path output
+  ) {
+    return fetcher.fetchModel(
+      new FetchModelConfig(
+        MODEL_NAME,
+        List.of(new ModelFile(FILE_NAME, ModelFileType.MODEL)),
+        output
+      )
+    );
+  }
+
+  private BlobStore blobs() {
+    return new BlobStore(directory.resolve(".blobs"), 0);
+  }
+
+  private void serve(HttpServerRequest request) {
+    var response = request.response();
+    var expected = "/" + MODEL_NAME + "/resolve/main/" + FILE_NAME;
+    var cdn = "/cdn/" + FILE_NAME;
+    authorizations.add(
+      request.method() + " " + request.getHeader("Authorization")
+    );
+    if (
+      redirect &&
+      request.path().equals(expected) &&
+      request.method() == HttpMethod.GET
+    ) {
+      // Another name of this server, standing for the CDN of the hub
+      response
+        .setStatusCode(302)
+        .putHeader("Location", "http://127.0.0.1:" + port + cdn)
+        .end()
+        .subscribe();
+      return;
+    }
+    if (!request.path().equals(expected) && !request.path().equals(cdn)) {
+      response.setStatusCode(404).end().subscribe();
+      return;
+    }
+    response.putHeader("Accept-Ranges", "bytes");
+    if (request.method() == HttpMethod.HEAD) {
+      response
+        .putHeader("Content-Length", String.valueOf(content.length))
+        .putHeader("ETag", "\"" + etag + "\"")
+        .end()
+        .subscribe();
+      return;
+    }
+    var range = request.getHeader("Range");
+    ranges.add(range);
+    var bounds = range.substring("bytes=".length()).split("-");
+    var start = Integer.parseInt(bounds[0]);
+    var end = bounds.length > 1
+      ? Integer.parseInt(bounds[1])
+      : content.length - 1;
+    response
+      .setStatusCode(206)
+      .end(Buffer.buffer(Arrays.copyOfRange(content, start, end + 1)))
+      .subscribe();
+  }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.inference.service.repository;
+
+import static io.gravitee.inference.api.Constants.MAX_SEQUENCE_LENGTH;
+import static io.gravitee.inference.api.Constants.MODEL_PATH;
+import static io.gravitee.inference.api.Constants.POOLING_MODE;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author GraviteeSource Team
+ */
+public class ModelKeysTest {
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void must_ignore_key_order_and_number_types() {
+    var payload = new LinkedHashMap<String, Object>();
+    payload.put(POOLING_MODE, "MEAN");
+    payload.put(MAX_SEQUENCE_LENGTH, 512);
+    var reordered = new LinkedHashMap<String, Object>();
+    reordered.put(MAX_SEQUENCE_LENGTH, 512.0);
+    reordered.put(POOLING_MODE, "MEAN");
+
+    assertEquals(
+      ModelKeys.sha256(payload, List.of()),
+      ModelKeys.sha256(reordered, List.of())
+    );
+    assertNotEquals(
+      ModelKeys.sha256(payload, List.of()),
+      ModelKeys.sha256(Map.of(MAX_SEQUENCE_LENGTH, 256), List.of())
+    );
+  }
+
+  @Test
+  void must_key_files_by_content() throws Exception {
+    var model = Files.writeString(directory.resolve("model.onnx"), "weights");
+    var copy = Files.writeString(directory.resolve("copy.onnx"), "weights");
+    var other = Files.writeString(directory.resolve("other.onnx"), "other");
+
+    assertEquals(key(model), key(copy));
+    assertNotEquals(key(model), key(other));
+  }
+
+  private static String key(Path model) {
+    return ModelKeys.sha256(
+      ModelKeys.withFileDigests(
+        Map.of(MODEL_PATH, model.toString()),
+        List.of(MODEL_PATH)
+      ),
+      List.of()
+    );
+  }
+}
@@ -18,20 +18,35 @@ package io.gravitee.inference.service.repository;
 import static io.gravitee.inference.api.Constants.*;
 import static io.gravitee.inference.api.service.InferenceAction.START;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 import io.gravitee.inference.api.InferenceModel;
 import io.gravitee.inference.api.service.InferenceRequest;
+import io.gravitee.inference.onnx.OnnxInference;
 import io.gravitee.inference.onnx.bert.classifier.OnnxBertClassifierModel;
 import io.gravitee.inference.onnx.bert.embedding.OnnxBertEmbeddingModel;
 import io.gravitee.inference.service.handler.InferenceHandler;
 import io.gravitee.inference.service.handler.LocalInferenceHandler;
+import io.gravitee.inference.service.handler.config.WarmupConfig;
 import io.gravitee.inference.service.model.InferenceModelFactory;
 import io.gravitee.inference.service.model.LocalModelFactory;
+import io.reactivex.rxjava3.core.Single;
+import io.reactivex.rxjava3.functions.Predicate;
+import io.reactivex.rxjava3.schedulers.Schedulers;
 import io.vertx.rxjava3.core.Vertx;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Stream;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
@@ -122,17 +137,20 @@ public class ModelRepositoryTest {
   @ParameterizedTest
   @MethodSource("params_that_must_build_model")
   void must_setup_model_lifecycle(InferenceRequest request) {
+    LocalModelFactory modelFactory = mock();
+    OnnxInference<Object, String, Object> onnxModel = mock();
+    doReturn(onnxModel).when(modelFactory).build(any());
     LocalInferenceHandler handler = new LocalInferenceHandler(
       request.payload(),
-      mock(LocalModelFactory.class)
+      modelFactory
     );
-    InferenceHandler model = repository.add(handler);
+    InferenceHandler model = repository.add(handler).blockingGet();
     assertNotNull(model);
 
     assertEquals(1, repository.getModelsSize());
     assertEquals(1, repository.getModelUsage(model.key()));
 
-    repository.add(handler);
+    repository.add(handler).blockingGet();
 
     assertEquals(1, repository.getModelsSize());
     assertEquals(2, repository.getModelUsage(model.key()));
@@ -147,4 +165,217 @@ public class ModelRepositoryTest {
     assertEquals(0, repository.getModelsSize());
     assertEquals(0, repository.getModelUsage(model.key()));
   }
+
+  @Test
+  void must_load_model_once_for_concurrent_adds() throws Exception {
+    var release = new CountDownLatch(1);
+    var handler = new CountingHandler(() -> release.await(5, TimeUnit.SECONDS));
+
+    var first = repository.add(handler).subscribeOn(Schedulers.io()).test();
+    var second = repository.add(handler).subscribeOn(Schedulers.io()).test();
+    release.countDown();
+
+    first.awaitDone(5, TimeUnit.SECONDS).assertValue(shares(handler));
+    second.awaitDone(5, TimeUnit.SECONDS).assertValue(shares(handler));
+    assertEquals(1, handler.loads.get());
+    assertEquals(2, repository.getModelUsage(handler.key()));
+  }
+
+  @Test
+  void must_not_remember_failed_loads() {
+    var handler = new CountingHandler(() -> {
+      throw new IllegalStateException("Broken model");
+    });
+
+    repository.add(handler).test().assertError(IllegalStateException.class);
+    assertEquals(0, repository.getModelsSize());
+
+    repository.add(handler).test().assertError(IllegalStateException.class);
+    assertEquals(2, handler.loads.get());
+  }
+
+  @Test
+  void must_unload_least_recently_used_model_beyond_budget() {
+    repository = new HandlerRepository(new ResidencyConfig(100, 0));
+    var first = new CountingHandler("first", 60);
+    var second = new CountingHandler("second", 60);
+
+    var shared = repository.add(first).blockingGet();
+    repository.add(second).blockingGet();
+
+    assertFalse(repository.isModelLoaded("first"));
+    assertTrue(repository.isModelLoaded("second"));
+
+    shared.infer("input").test().assertValue("input");
+
+    assertEquals(2, first.loads.get());
+    assertTrue(repository.isModelLoaded("first"));
+    assertFalse(repository.isModelLoaded("second"));
+    assertEquals(1, repository.getModelUsage("second"));
+  }
+
+  @Test
+  void must_load_models_while_another_one_closes() throws Exception {
+    repository = new HandlerRepository(new ResidencyConfig(100, 0));
+    var closing = new CountDownLatch(1);
+    var closed = new CountDownLatch(1);
+    var first = new CountingHandler("first", 60, () -> {
+      closing.countDown();
+      return closed.await(5, TimeUnit.SECONDS);
+    });
+    repository.add(first).blockingGet();
+
+    var second = repository
+      .add(new CountingHandler("second", 60))
+      .subscribeOn(Schedulers.io())
+      .test();
+    assertTrue(closing.await(5, TimeUnit.SECONDS));
+
+    // The budget is not locked while the first model closes
+    repository
+      .add(new CountingHandler("third", 10))
+      .subscribeOn(Schedulers.io())
+      .test()
+      .awaitDone(1, TimeUnit.SECONDS)
+      .assertComplete();
+    closed.countDown();
+    second.awaitDone(5, TimeUnit.SECONDS).assertComplete();
+  }
+
+  @Test
+  void must_close_unloaded_model_once() throws Exception {
+    repository = new HandlerRepository(new ResidencyConfig(0, 1));
+    var handler = new CountingHandler("idle", 60);
+    repository.add(handler).blockingGet();
+
+    Thread.sleep(10);
+    repository.unloadIdleModels();
+    repository.remove(handler);
+
+    assertEquals(1, handler.closes.get());
+    assertEquals(0, repository.getModelsSize());
+  }
+
+  @Test
+  void must_unload_idle_models() throws Exception {
+    repository = new HandlerRepository(new ResidencyConfig(0, 1));
+    var handler = new CountingHandler("idle", 60);
+    var shared = repository.add(handler).blockingGet();
+
+    Thread.sleep(10);
+    repository.unloadIdleModels();
+
+    assertFalse(repository.isModelLoaded("idle"));
+    shared.infer("input").test().assertValue("input");
+    assertEquals(2, handler.loads.get());
+  }
+
+  @Test
+  void must_load_unloaded_model_to_warm_it_up() throws Exception {
+    repository = new HandlerRepository(new ResidencyConfig(0, 1));
+    var handler = new CountingHandler("idle", 60);
+    var shared = repository.add(handler).blockingGet();
+
+    Thread.sleep(10);
+    repository.unloadIdleModels();
+    shared.warmUp().test().assertComplete();
+
+    assertTrue(repository.isModelLoaded("idle"));
+    assertEquals(2, handler.loads.get());
+  }
+
+  @Test
+  void must_warm_up_shared_model_once() {
+    OnnxInference<Object, String, Object> model = mock();
+    var handler = warmedUpHandler(model);
+
+    var first = repository.add(handler).blockingGet();
+    var second = repository.add(handler).blockingGet();
+    first.warmUp().blockingAwait();
+    second.warmUp().blockingAwait();
+
+    verify(model, times(3)).infer(any());
+  }
+
+  @Test
+  void must_not_fail_when_warm_up_fails() {
+    OnnxInference<Object, String, Object> model = mock();
+    when(model.infer(any())).thenThrow(new IllegalStateException("Broken"));
+
+    var shared = repository.add(warmedUpHandler(model)).blockingGet();
+
+    shared.warmUp().test().assertComplete();
+    assertTrue(repository.isModelLoaded(shared.key()));
+  }
+
+  private static LocalInferenceHandler warmedUpHandler(
+    OnnxInference<?, ?, ?> model
+  ) {
+    LocalModelFactory modelFactory = mock();
+    when(modelFactory.build(any())).thenAnswer(__ -> model);
+    return new LocalInferenceHandler(
+      Map.of(MODEL_PATH, "model.onnx", WarmupConfig.WARMUP_ITERATIONS, 3),
+      modelFactory
+    );
+  }
+
+  private static Predicate<InferenceHandler> shares(InferenceHandler handler) {
+    return shared -> shared.key().equals(handler.key());
+  }
+
+  private record CountingHandler(
+    String key,
+    long memoryBytes,
+    Callable<?> load,
+    AtomicInteger loads,
+    Callable<?> unload,
+    AtomicInteger closes
+  )
+    implements InferenceHandler {
+    private CountingHandler(Callable<?> load) {
+      this("42", 0, load, new AtomicInteger(), () -> null, new AtomicInteger());
+    }
+
+    private CountingHandler(String key, long memoryBytes) {
+      this(key, memoryBytes, () -> null);
+    }
+
+    private CountingHandler(String key, long memoryBytes, Callable<?> unload) {
+      this(
+        key,
+        memoryBytes,
+        () -> null,
+        new AtomicInteger(),
+        unload,
+        new AtomicInteger()
+      );
+    }
+
+    @Override
+    public void loadModel() {
+      loads.incrementAndGet();
+      call(load);
+    }
+
+    @Override
+    public Single<Object> infer(Object input) {
+      return Single.just(input);
+    }
+
+    @Override
+    public void close() {
+      closes.incrementAndGet();
+      call(unload);
+    }
+
+    private static void call(Callable<?> callable) {
+      try {
+        callable.call();
+      } catch (RuntimeException e) {
+        throw e;
+      } catch (Exception e) {
+        throw new IllegalStateException(e);
+      }
+    }
+  }
 }